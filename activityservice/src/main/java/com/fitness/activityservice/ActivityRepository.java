@@ -1,10 +1,13 @@
 package com.fitness.activityservice;
 
 import com.fitness.activityservice.model.Activity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ActivityRepository extends MongoRepository<Activity, String> {
-
+    List<Activity> findByUserIdOrderByCreatedAtDesc(String userId, Pageable pageable);
 }
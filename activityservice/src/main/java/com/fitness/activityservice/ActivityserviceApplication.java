@@ -1,9 +1,12 @@
 package com.fitness.activityservice;
 
+import com.fitness.loadbalancer.PeakEwmaLoadBalancerConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 
 @SpringBootApplication
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
 public class ActivityserviceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,31 @@
+package com.fitness.activityservice.config;
+
+import com.fitness.activityservice.model.Activity;
+import com.fitness.events.ActivityEvent;
+import com.fitness.events.ActivityEventSerializer;
+import com.fitness.events.ActivityEventType;
+
+/**
+ * Value serializer for the activity topic, configured by class name under
+ * {@code spring.kafka.producer.value-serializer}.
+ */
+public class ActivityEventKafkaSerializer extends ActivityEventSerializer<Activity> {
+
+    public ActivityEventKafkaSerializer() {
+        super(ActivityEventKafkaSerializer::toEvent);
+    }
+
+    static ActivityEvent toEvent(Activity activity) {
+        ActivityEvent event = new ActivityEvent();
+        event.setId(activity.getId());
+        event.setUserId(activity.getUserId());
+        event.setType(activity.getType() != null ? ActivityEventType.valueOf(activity.getType().name()) : null);
+        event.setDuration(activity.getDuration());
+        event.setCaloriesBurned(activity.getCaloriesBurned());
+        event.setStartTime(activity.getStartTime());
+        event.setMetrics(activity.getAdditionalMetrics());
+        event.setCreatedAt(activity.getCreatedAt());
+        event.setUpdatedAt(activity.getUpdatedAt());
+        return event;
+    }
+}
@@ -0,0 +1,24 @@
+package com.fitness.activityservice.config;
+
+import com.fitness.signature.GatewaySignature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@Slf4j
+public class GatewaySignatureConfig {
+
+    @Bean
+    public GatewaySignature gatewaySignature(@Value("${fitness.gateway.signing-secret:}") String secret,
+            @Value("${fitness.gateway.signature-max-age:30s}") Duration maxAge) {
+        GatewaySignature signature = new GatewaySignature(secret, maxAge);
+        if (!signature.isEnabled()) {
+            log.warn("fitness.gateway.signing-secret is not set; X-User-ID will be ignored");
+        }
+        return signature;
+    }
+}
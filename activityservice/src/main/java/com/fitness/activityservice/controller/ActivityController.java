@@ -3,24 +3,45 @@ package com.fitness.activityservice.controller;
 import com.fitness.activityservice.dto.ActivityRequest;
 import com.fitness.activityservice.dto.ActivityResponse;
 import com.fitness.activityservice.service.ActivityService;
+import com.fitness.signature.GatewaySignature;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/activities")
 @AllArgsConstructor
 public class ActivityController {
     private ActivityService activityService;
+    private GatewaySignature gatewaySignature;
 
     @PostMapping
-    public ResponseEntity<ActivityResponse> trackActivity(@Valid @RequestBody ActivityRequest request) {
-        return ResponseEntity.ok(activityService.trackActivity(request));
+    public ResponseEntity<ActivityResponse> trackActivity(@Valid @RequestBody ActivityRequest request,
+            @RequestHeader(value = "X-User-ID", required = false) String userId,
+            @RequestHeader(value = GatewaySignature.HEADER, required = false) String signature) {
+        // an unsigned X-User-ID did not come from the gateway; the body's userId is validated instead
+        String gatewayUserId = gatewaySignature.verify(GatewaySignature.USER_ID, userId, signature) ? userId : null;
+        return ResponseEntity.ok(activityService.trackActivity(request, gatewayUserId));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ActivityResponse>> getRecentActivities(@RequestHeader("X-User-ID") String userId,
+            @RequestHeader(value = GatewaySignature.HEADER, required = false) String signature,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (!gatewaySignature.verify(GatewaySignature.USER_ID, userId, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(activityService.getRecentActivities(userId, Math.min(Math.max(limit, 1), 100)));
     }
 
     @GetMapping("/health")
@@ -10,7 +10,7 @@ import java.util.Map;
 
 @Data
 public class ActivityRequest {
-    @NotNull(message = "User ID cannot be null")
+    // Optional when the request comes through the gateway, which sends the caller's id as X-User-ID
     private String userId;
 
     @NotNull(message = "Activity type cannot be null")
@@ -7,8 +7,13 @@ import com.fitness.activityservice.model.Activity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -22,11 +27,23 @@ public class ActivityService {
     @Value("${kafka.topic.name}")
     private String topicName;
 
-    public ActivityResponse trackActivity(ActivityRequest activityRequest) {
+    /**
+     * @param gatewayUserId the user id the gateway resolved from the caller's token,
+     *                      or null when the request did not come through the gateway
+     */
+    public ActivityResponse trackActivity(ActivityRequest activityRequest, String gatewayUserId) {
+        if (gatewayUserId != null) {
+            // the gateway provisioned this user, and its id wins over whatever the body claims
+            activityRequest.setUserId(gatewayUserId);
+        } else if (activityRequest.getUserId() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "userId is required when the request does not come through the gateway");
+        }
         log.info("Tracking activity for user: {}", activityRequest.getUserId());
 
         try {
-            boolean isValidUser = userValidationService.validateUser(activityRequest.getUserId());
+            boolean isValidUser = gatewayUserId != null
+                    || userValidationService.validateUser(activityRequest.getUserId());
 
             log.info("User validation result for {}: {}", activityRequest.getUserId(), isValidUser);
 
@@ -65,6 +82,12 @@ public class ActivityService {
         }
     }
 
+    public List<ActivityResponse> getRecentActivities(String userId, int limit) {
+        return activityRepository.findByUserIdOrderByCreatedAtDesc(userId, PageRequest.of(0, limit)).stream()
+                .map(this::mapToResponse)
+                .toList();
+    }
+
     private ActivityResponse mapToResponse(Activity savedActivity) {
         ActivityResponse activityResponse = new ActivityResponse();
         activityResponse.setId(savedActivity.getId());
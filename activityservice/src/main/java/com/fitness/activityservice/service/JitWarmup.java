@@ -0,0 +1,158 @@
+package com.fitness.activityservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.ActivityRepository;
+import com.fitness.activityservice.config.ActivityEventKafkaSerializer;
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.model.Activity;
+import com.fitness.activityservice.model.ActivityType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggerConfiguration;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs {@code trackActivity}, the ActivityRequest JSON round trip and the
+ * activity-event encoding in a loop at startup, so the JIT compiles them
+ * before real traffic arrives.
+ * Database, Kafka and userservice calls are stubbed. The loop runs in
+ * lifecycle phase -1, just before Eureka registration (phase 0), so the
+ * instance registers, opens its port and reports ready only once it is warm.
+ *
+ * <p>The loop uses its own {@link ActivityService} wired to those stubs, since
+ * the application's bean would write to MongoDB and Kafka. The same methods get
+ * compiled, but the calls into the repository, Kafka and user validation are
+ * profiled against the stubs, so the JIT may recompile them once real traffic
+ * arrives. MongoDB mapping, the Kafka producer and the WebClient call to
+ * userservice are not warmed at all; only the Kafka value serializer is.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JitWarmup implements SmartLifecycle {
+
+    private final ObjectMapper objectMapper;
+    private final LoggingSystem loggingSystem;
+
+    // read at startup rather than as a bean condition, which an AOT build would freeze
+    @Value("${activity.warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${activity.warmup.iterations:20000}")
+    private int iterations;
+
+    @Value("${activity.warmup.max-duration:20s}")
+    private Duration maxDuration;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            running = true;
+            return;
+        }
+        ActivityService activityService = new ActivityService(stubRepository(), stubValidation(), stubKafkaTemplate());
+        String loggerName = ActivityService.class.getName();
+        LoggerConfiguration current = loggingSystem.getLoggerConfiguration(loggerName);
+        LogLevel configured = current != null ? current.getConfiguredLevel() : null;
+        // trackActivity logs every step at INFO; thousands of synthetic requests would flood the log
+        loggingSystem.setLogLevel(loggerName, LogLevel.WARN);
+
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        int completed = 0;
+        try {
+            while (completed < iterations && System.nanoTime() < deadline) {
+                ActivityRequest request = objectMapper.readValue(
+                        objectMapper.writeValueAsBytes(sampleRequest(completed)), ActivityRequest.class);
+                // alternate so both the trusted-header path and the validation path get compiled
+                activityService.trackActivity(request, completed % 2 == 0 ? "warmup-user" : null);
+                completed++;
+            }
+        } catch (Exception e) {
+            log.warn("JIT warm-up stopped after {} iterations: {}", completed, e.getMessage());
+        } finally {
+            loggingSystem.setLogLevel(loggerName, configured);
+        }
+        log.info("JIT warm-up ran {} iterations in {} ms", completed, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return -1;
+    }
+
+    private ActivityRequest sampleRequest(int i) {
+        ActivityRequest request = new ActivityRequest();
+        request.setUserId("warmup-user");
+        request.setType(ActivityType.values()[i % ActivityType.values().length]);
+        request.setDuration(20 + i % 60);
+        request.setCaloriesBurned(150 + i % 400);
+        request.setStartTime(LocalDateTime.now());
+        request.setAdditionalMetrics(Map.of("distance", 5.2, "heartRate", 140 + i % 30, "steps", 6000 + i));
+        return request;
+    }
+
+    private ActivityRepository stubRepository() {
+        return (ActivityRepository) Proxy.newProxyInstance(ActivityRepository.class.getClassLoader(),
+                new Class<?>[]{ActivityRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        Activity activity = (Activity) args[0];
+                        activity.setId("warmup");
+                        activity.setCreatedAt(LocalDateTime.now());
+                        yield activity;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "warm-up ActivityRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private UserValidationService stubValidation() {
+        return new UserValidationService(null) {
+            @Override
+            public boolean validateUser(String userId) {
+                return true;
+            }
+        };
+    }
+
+    private KafkaTemplate<String, Activity> stubKafkaTemplate() {
+        ActivityEventKafkaSerializer serializer = new ActivityEventKafkaSerializer();
+        // the producer factory is never asked for a producer, so nothing connects to Kafka
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<String, Activity>(Map.of())) {
+            @Override
+            public CompletableFuture<SendResult<String, Activity>> send(String topic, String key, Activity data) {
+                // encode the record as the producer would, then drop it
+                serializer.serialize(topic, data);
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+    }
+}
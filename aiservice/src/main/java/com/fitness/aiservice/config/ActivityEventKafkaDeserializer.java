@@ -0,0 +1,34 @@
+package com.fitness.aiservice.config;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import com.fitness.events.ActivityEvent;
+import com.fitness.events.ActivityEventDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+/**
+ * Value deserializer for the activity topic, configured by class name under
+ * {@code spring.kafka.consumer.value-deserializer}. JSON records published
+ * before activityservice switched to the binary codec are still read, always
+ * as {@link Activity} regardless of type headers.
+ */
+public class ActivityEventKafkaDeserializer extends ActivityEventDeserializer<Activity> {
+
+    public ActivityEventKafkaDeserializer() {
+        super(ActivityEventKafkaDeserializer::toActivity, new JsonDeserializer<>(Activity.class, false));
+    }
+
+    static Activity toActivity(ActivityEvent event) {
+        return Activity.builder()
+                .id(event.getId())
+                .userId(event.getUserId())
+                .type(event.getType() != null ? ActivityType.valueOf(event.getType().name()) : null)
+                .duration(event.getDuration())
+                .caloriesBurned(event.getCaloriesBurned())
+                .startTime(event.getStartTime())
+                .additionalMetrics(event.getMetrics())
+                .createdAt(event.getCreatedAt())
+                .updatedAt(event.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.fitness.aiservice.config;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.events.ActivityEvent;
+import com.fitness.events.ActivityEventSerializer;
+import com.fitness.events.ActivityEventType;
+
+/**
+ * Value serializer for the backlog topic, configured by class name under
+ * {@code spring.kafka.producer.value-serializer}. Events moved off the activity
+ * topic keep the binary encoding activityservice published them with.
+ */
+public class ActivityEventKafkaSerializer extends ActivityEventSerializer<Activity> {
+
+    public ActivityEventKafkaSerializer() {
+        super(ActivityEventKafkaSerializer::toEvent);
+    }
+
+    static ActivityEvent toEvent(Activity activity) {
+        ActivityEvent event = new ActivityEvent();
+        event.setId(activity.getId());
+        event.setUserId(activity.getUserId());
+        event.setType(activity.getType() != null ? ActivityEventType.valueOf(activity.getType().name()) : null);
+        event.setDuration(activity.getDuration());
+        event.setCaloriesBurned(activity.getCaloriesBurned());
+        event.setStartTime(activity.getStartTime());
+        event.setMetrics(activity.getAdditionalMetrics());
+        event.setCreatedAt(activity.getCreatedAt());
+        event.setUpdatedAt(activity.getUpdatedAt());
+        return event;
+    }
+}
@@ -0,0 +1,41 @@
+package com.fitness.aiservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Pool for in-flight Gemini calls. Calls keep running here after the listener
+     * has stopped waiting for them, so the late answer can still be stored.
+     */
+    @Bean(name = "geminiExecutor")
+    public ThreadPoolTaskExecutor geminiExecutor(@Value("${gemini.executor.pool-size:8}") int poolSize,
+                                                 @Value("${gemini.executor.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("gemini-");
+        // carry the listener's trace into the Gemini call and the save that follows it
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "backfillExecutor")
+    public ThreadPoolTaskExecutor backfillExecutor(@Value("${ai.backfill.max-concurrent-jobs:2}") int maxJobs) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxJobs);
+        executor.setMaxPoolSize(maxJobs);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("backfill-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.initialize();
+        return executor;
+    }
+}
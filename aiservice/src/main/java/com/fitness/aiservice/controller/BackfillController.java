@@ -0,0 +1,41 @@
+package com.fitness.aiservice.controller;
+
+import com.fitness.aiservice.dto.BackfillRequest;
+import com.fitness.aiservice.model.BackfillJob;
+import com.fitness.aiservice.service.BackfillService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/backfill")
+public class BackfillController {
+    private final BackfillService backfillService;
+
+    @PostMapping
+    public ResponseEntity<BackfillJob> start(@Valid @RequestBody BackfillRequest request) {
+        return ResponseEntity.ok(backfillService.start(request));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<BackfillJob> status(@PathVariable String jobId) {
+        return ResponseEntity.ok(backfillService.getJob(jobId));
+    }
+
+    @PostMapping("/{jobId}/resume")
+    public ResponseEntity<BackfillJob> resume(@PathVariable String jobId) {
+        return ResponseEntity.ok(backfillService.resume(jobId));
+    }
+
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<BackfillJob> cancel(@PathVariable String jobId) {
+        return ResponseEntity.ok(backfillService.cancel(jobId));
+    }
+}
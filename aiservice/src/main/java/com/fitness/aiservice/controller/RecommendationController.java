@@ -8,6 +8,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -23,6 +24,12 @@ public class RecommendationController {
         return ResponseEntity.ok(recommendationService.getUserRecommendations(userId));
     }
 
+    @GetMapping("/user/{userId}/latest")
+    public ResponseEntity<List<Recommendation>> getLatestUserRecommendations(@PathVariable String userId,
+                                                                             @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(recommendationService.getLatestUserRecommendations(userId, Math.min(Math.max(limit, 1), 50)));
+    }
+
     @GetMapping("/activity/{activityId}")
     public ResponseEntity<List<Recommendation>> getUserRecommendations(@PathVariable String activityId) {
         return ResponseEntity.ok(recommendationService.getUserRecommendations(activityId));
@@ -0,0 +1,24 @@
+package com.fitness.aiservice.dto;
+
+import com.fitness.aiservice.model.BackfillSource;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class BackfillRequest {
+    @NotNull(message = "Backfill source cannot be null")
+    private BackfillSource source;
+
+    /** mongoexport file, relative to {@code ai.backfill.export-dir}. */
+    private String exportPath;
+
+    private LocalDateTime fromTimestamp;
+
+    private Long fromOffset;
+
+    @Positive(message = "Chunk size must be positive")
+    private Integer chunkSize;
+}
@@ -0,0 +1,59 @@
+package com.fitness.aiservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * A recommendation backfill run and its checkpoint. The checkpoint is saved
+ * after every completed chunk, so a resumed job only repeats the chunk that was
+ * in flight when it stopped.
+ */
+@Data
+@Document(collection = "backfill_jobs")
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BackfillJob {
+    @Id
+    private String id;
+    private BackfillSource source;
+    private BackfillStatus status;
+    private int chunkSize;
+
+    /** mongoexport JSON-lines file relative to the export directory, for {@link BackfillSource#MONGO_EXPORT}. */
+    private String exportPath;
+    /** Number of lines of the export already processed. */
+    private long lineCheckpoint;
+
+    /** Replay start for {@link BackfillSource#KAFKA_REPLAY}; falls back to the earliest offset when both are empty. */
+    private LocalDateTime fromTimestamp;
+    private Long fromOffset;
+    /** Next offset to read, keyed by partition number. */
+    private Map<String, Long> offsetCheckpoints;
+    /** Offsets the replay stops at, captured when the job first started. */
+    private Map<String, Long> endOffsets;
+
+    private long total;
+    private long processed;
+    private long failed;
+    private String error;
+
+    @CreatedDate
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    private LocalDateTime updatedAt;
+
+    public double getProgress() {
+        return total > 0 ? Math.min(100.0, (processed + failed) * 100.0 / total) : 0;
+    }
+}
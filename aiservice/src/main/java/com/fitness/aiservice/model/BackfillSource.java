@@ -0,0 +1,6 @@
+package com.fitness.aiservice.model;
+
+public enum BackfillSource {
+    MONGO_EXPORT,
+    KAFKA_REPLAY
+}
@@ -0,0 +1,21 @@
+package com.fitness.aiservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * A recommendation text fragment stored once and referenced by the hash of its
+ * text from every recommendation that uses it.
+ */
+@Data
+@Document(collection = "recommendation_phrases")
+@AllArgsConstructor
+@NoArgsConstructor
+public class Phrase {
+    @Id
+    private String id;
+    private String text;
+}
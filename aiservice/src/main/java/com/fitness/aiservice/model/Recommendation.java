@@ -26,6 +26,7 @@ public class Recommendation {
     private List<String> improvements;
     private List<String> suggestions;
     private List<String> safety;
+    private String source;
 
     @CreatedDate
     private LocalDateTime createdAt;
@@ -0,0 +1,9 @@
+package com.fitness.aiservice.repository;
+
+import com.fitness.aiservice.model.BackfillJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BackfillJobRepository extends MongoRepository<BackfillJob, String> {
+}
@@ -0,0 +1,71 @@
+package com.fitness.aiservice.repository;
+
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.service.PhraseDictionary;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertCallback;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveCallback;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the phrase lists of a {@link Recommendation} as entries of the
+ * {@link PhraseDictionary}. Only the stored document is rewritten; the entity
+ * passed to save keeps its text. Documents written before dictionary storage
+ * still carry plain text arrays and are read unchanged.
+ *
+ * <p>Every read is expanded during conversion, so repository callers always
+ * see text. Hot phrases come from the dictionary's cache; the refs of a
+ * document that are not cached are fetched with one query.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecommendationPhraseCallback
+        implements BeforeSaveCallback<Recommendation>, AfterConvertCallback<Recommendation> {
+
+    private static final String REF_SUFFIX = "Refs";
+    private static final List<String> PHRASE_FIELDS = List.of("improvements", "suggestions", "safety");
+
+    private final PhraseDictionary phraseDictionary;
+
+    @Override
+    public Recommendation onBeforeSave(Recommendation entity, Document document, String collection) {
+        for (String field : PHRASE_FIELDS) {
+            List<String> phrases = document.getList(field, String.class);
+            if (phrases != null) {
+                document.put(field + REF_SUFFIX, phraseDictionary.intern(phrases));
+                document.remove(field);
+            }
+        }
+        return entity;
+    }
+
+    @Override
+    public Recommendation onAfterConvert(Recommendation entity, Document document, String collection) {
+        List<String> entries = new ArrayList<>();
+        for (String field : PHRASE_FIELDS) {
+            List<String> stored = document.getList(field + REF_SUFFIX, String.class);
+            if (stored != null) {
+                entries.addAll(stored);
+            }
+        }
+        Map<String, String> resolved = entries.isEmpty() ? Map.of() : phraseDictionary.resolve(entries);
+        List<String> improvements = document.getList("improvements" + REF_SUFFIX, String.class);
+        if (improvements != null) {
+            entity.setImprovements(phraseDictionary.expand(improvements, resolved));
+        }
+        List<String> suggestions = document.getList("suggestions" + REF_SUFFIX, String.class);
+        if (suggestions != null) {
+            entity.setSuggestions(phraseDictionary.expand(suggestions, resolved));
+        }
+        List<String> safety = document.getList("safety" + REF_SUFFIX, String.class);
+        if (safety != null) {
+            entity.setSafety(phraseDictionary.expand(safety, resolved));
+        }
+        return entity;
+    }
+}
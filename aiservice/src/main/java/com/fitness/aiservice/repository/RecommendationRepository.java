@@ -1,6 +1,7 @@
 package com.fitness.aiservice.repository;
 
 import com.fitness.aiservice.model.Recommendation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,5 +12,9 @@ import java.util.Optional;
 public interface RecommendationRepository extends MongoRepository<Recommendation, String> {
     List<Recommendation> findByUserId(String userId);
 
+    List<Recommendation> findByUserIdOrderByCreatedAtDesc(String userId, Pageable pageable);
+
     Optional<Recommendation> findByActivityId(String activityId);
+
+    Optional<Recommendation> findFirstByActivityId(String activityId);
 }
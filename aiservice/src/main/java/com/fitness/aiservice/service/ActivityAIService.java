@@ -4,41 +4,161 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fitness.aiservice.model.Activity;
 import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.repository.RecommendationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ActivityAIService {
+  public static final String SOURCE = "GEMINI";
+
   private final GeminiService geminiService;
+  private final RuleBasedRecommendationEngine ruleEngine;
+  private final RecommendationRepository recommendationRepository;
+  private final AiMetrics aiMetrics;
+  private final PayloadLogSampler payloadLogSampler;
+  private final PromptBuilder promptBuilder;
+  private final ModelRouter modelRouter;
+
+  @Qualifier("geminiExecutor")
+  private final Executor geminiExecutor;
+
+  @Value("${gemini.deadline-ms:3000}")
+  private long deadlineMs;
+
+  public Recommendation generateRecommendation(Activity activity, PriorityLane lane) {
+    ModelRoute route = modelRouter.route(activity);
+    if (route == ModelRoute.TEMPLATE) {
+      log.debug("Activity {} is simple enough for a rule-based recommendation", activity.getId());
+      return store(activity, ruleEngine.recommend(activity), lane);
+    }
+    if (lane == PriorityLane.BACKLOG) {
+      // Nobody is waiting on backlog items, so skip the deadline and use the lane thread for the call
+      Recommendation result;
+      try {
+        result = askGemini(activity, route);
+      } catch (Exception e) {
+        log.error("Gemini call failed for backlog activity {}: {}", activity.getId(), e.getMessage());
+        aiMetrics.countFallback("gemini_error");
+        result = ruleEngine.recommend(activity);
+      }
+      return store(activity, result, lane);
+    }
+    return generateWithDeadline(activity, route);
+  }
 
   public Recommendation generateRecommendation(Activity activity) {
-    log.info("Starting recommendation generation for activity: {}", activity.getId());
+    return generateRecommendation(activity, PriorityLane.LIVE);
+  }
+
+  /**
+   * Generates and stores a recommendation for the activity. Gemini gets
+   * {@code gemini.deadline-ms} to answer; if it misses the deadline the rule-based
+   * result is stored instead and overwritten in place once the LLM answer arrives.
+   */
+  private Recommendation generateWithDeadline(Activity activity, ModelRoute route) {
+    log.debug("Starting recommendation generation for activity: {} on route {}", activity.getId(), route);
+    CompletableFuture<Recommendation> llmResult;
+    try {
+      llmResult = CompletableFuture.supplyAsync(() -> askGemini(activity, route), geminiExecutor);
+    } catch (RejectedExecutionException e) {
+      log.warn("Gemini executor saturated, using rule-based recommendation for activity: {}", activity.getId());
+      aiMetrics.countFallback("rejected");
+      return save(activity, ruleEngine.recommend(activity), PriorityLane.LIVE);
+    }
+
+    try {
+      return save(activity, llmResult.get(deadlineMs, TimeUnit.MILLISECONDS), PriorityLane.LIVE);
+    } catch (TimeoutException e) {
+      log.info("Gemini missed the {} ms deadline for activity: {}, storing rule-based recommendation",
+          deadlineMs, activity.getId());
+      aiMetrics.countFallback("deadline");
+      Recommendation quick = save(activity, ruleEngine.recommend(activity), PriorityLane.LIVE);
+      llmResult.thenAccept(late -> replaceWithLateResult(activity, quick, late))
+          .whenComplete((ignored, e) -> {
+            if (e != null) {
+              // nobody is waiting on this future any more, so this log line is the only trace of the failure
+              Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+              log.error("Late Gemini result for activity {} was not stored: {}", activity.getId(), cause.getMessage(), cause);
+              aiMetrics.countLateResultFailure();
+            }
+          });
+      return quick;
+    } catch (ExecutionException e) {
+      log.error("Gemini call failed for activity {}: {}", activity.getId(), e.getCause().getMessage());
+      aiMetrics.countFallback("gemini_error");
+      return save(activity, ruleEngine.recommend(activity), PriorityLane.LIVE);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return save(activity, ruleEngine.recommend(activity), PriorityLane.LIVE);
+    }
+  }
+
+  private Recommendation store(Activity activity, Recommendation recommendation, PriorityLane lane) {
+    // Replays and backfills regenerate existing recommendations, so they overwrite rather than duplicate
+    if (lane == PriorityLane.BACKLOG) {
+      recommendationRepository.findFirstByActivityId(recommendation.getActivityId())
+          .map(Recommendation::getId)
+          .ifPresent(recommendation::setId);
+    }
+    return save(activity, recommendation, lane);
+  }
+
+  private Recommendation save(Activity activity, Recommendation recommendation, PriorityLane lane) {
+    Recommendation saved = recommendationRepository.save(recommendation);
+    aiMetrics.recordFreshness(activity.getCreatedAt(), saved.getSource(), lane);
+    return saved;
+  }
+
+  private Recommendation askGemini(Activity activity, ModelRoute route) {
     String prompt = createPromptForActivity(activity);
-    log.info("Created prompt for Gemini API");
-    String aiResponse = geminiService.getRecommendations(prompt);
-    log.info("RESPONSE FROM AI {}", aiResponse);
+    String aiResponse = geminiService.getRecommendations(prompt, route);
     Recommendation result = processAIResponse(activity, aiResponse);
-    log.info("Final recommendation result: {}", result);
+    if (payloadLogSampler.shouldLog(log)) {
+      log.debug("Prompt for activity {}: {}", activity.getId(), prompt);
+      log.debug("Response from AI for activity {}: {}", activity.getId(), aiResponse);
+      log.debug("Final recommendation result: {}", result);
+    }
     return result;
   }
 
-  private Recommendation processAIResponse(Activity activity, String aiResponse) {
-    try {
-      log.info("Raw AI Response: {}", aiResponse);
+  private void replaceWithLateResult(Activity activity, Recommendation quick, Recommendation late) {
+    if (!SOURCE.equals(late.getSource())) {
+      // Gemini answered but could not be parsed, the stored rule-based result stays
+      return;
+    }
+    late.setId(quick.getId());
+    save(activity, late, PriorityLane.LIVE);
+    log.info("Replaced rule-based recommendation {} with Gemini result", quick.getId());
+  }
 
+  Recommendation processAIResponse(Activity activity, String aiResponse) {
+    try {
       if (aiResponse == null || aiResponse.trim().isEmpty()) {
         log.warn("AI response is null or empty");
-        return createDefaultRecommendation(activity);
+        aiMetrics.countParseFailure("empty_response");
+        aiMetrics.countFallback("empty_response");
+        return ruleEngine.recommend(activity);
       }
 
       ObjectMapper mapper = new ObjectMapper();
       JsonNode rootNode = mapper.readTree(aiResponse);
+      aiMetrics.recordTokenUsage(rootNode.path("usageMetadata"));
       JsonNode textNode = rootNode.path("candidates")
           .get(0)
           .path("content")
@@ -50,12 +170,8 @@ public class ActivityAIService {
           .replaceAll("```", "")
           .replaceAll("\\n\\s*\\n", "\n")
           .trim();
-      log.info("Cleaned JSON Content: {}", jsonContent);
-      log.info("Extracted JSON Content: {}", jsonContent);
       JsonNode analysisNode = mapper.readTree(jsonContent);
-      log.info("Parsed Analysis Node: {}", analysisNode.toString());
       JsonNode analysisJson = analysisNode.path("analysis");
-      log.info("Analysis JSON: {}", analysisJson.toString());
 
       StringBuilder fullAnalysis = new StringBuilder();
       addAnalysisSection(fullAnalysis, analysisJson, "overall", "Overall:");
@@ -63,25 +179,11 @@ public class ActivityAIService {
       addAnalysisSection(fullAnalysis, analysisJson, "heartRate", "HeartRate:");
       addAnalysisSection(fullAnalysis, analysisJson, "caloriesBurned", "CaloriesBurned:");
 
-      log.info("Full Analysis Built: {}", fullAnalysis.toString());
-
-      JsonNode improvementsNode = analysisNode.path("improvements");
-      JsonNode suggestionsNode = analysisNode.path("suggestions");
-      JsonNode safetyNode = analysisNode.path("safety");
-
-      log.info("Improvements Node: {}", improvementsNode.toString());
-      log.info("Suggestions Node: {}", suggestionsNode.toString());
-      log.info("Safety Node: {}", safetyNode.toString());
+      List<String> improvements = extractImprovements(analysisNode.path("improvements"));
+      List<String> Suggestions = extractSuggestion(analysisNode.path("suggestions"));
+      List<String> Safety = extractSafetyGuidlines(analysisNode.path("safety"));
 
-      List<String> improvements = extractImprovements(improvementsNode);
-      List<String> Suggestions = extractSuggestion(suggestionsNode);
-      List<String> Safety = extractSafetyGuidlines(safetyNode);
-
-      log.info("Extracted improvements: {}", improvements);
-      log.info("Extracted suggestions: {}", Suggestions);
-      log.info("Extracted safety: {}", Safety);
-
-      Recommendation recommendation = Recommendation.builder()
+      return Recommendation.builder()
           .activityId(activity.getId())
           .userId(activity.getUserId())
           .type(activity.getType().toString())
@@ -89,38 +191,22 @@ public class ActivityAIService {
           .improvements(improvements)
           .suggestions(Suggestions)
           .safety(Safety)
+          .source(SOURCE)
           .createdAt(LocalDateTime.now())
           .build();
 
-      log.info("Successfully created recommendation: {}", recommendation);
-      return recommendation;
-
     } catch (Exception e) {
-      log.error("Failed to process AI response at step: {}", e.getClass().getSimpleName());
-      log.error("Error message: {}", e.getMessage());
-      log.error("Full stack trace: ", e);
-      log.error("AI Response that failed: {}", aiResponse);
-      log.warn("Falling back to default recommendation");
-      return createDefaultRecommendation(activity);
+      log.warn("Failed to process AI response for activity {}: {} - {}, falling back to rule-based recommendation",
+          activity.getId(), e.getClass().getSimpleName(), e.getMessage());
+      if (payloadLogSampler.shouldLog(log)) {
+        log.debug("AI response that failed: {}", aiResponse, e);
+      }
+      aiMetrics.countParseFailure(e.getClass().getSimpleName());
+      aiMetrics.countFallback("parse_failure");
+      return ruleEngine.recommend(activity);
     }
   }
 
-  private Recommendation createDefaultRecommendation(Activity activity) {
-    return Recommendation.builder()
-        .activityId(activity.getId())
-        .userId(activity.getUserId())
-        .type(activity.getType().toString())
-        .recommendation("Unable to generate detailed analysis")
-        .improvements(Collections.singletonList("Continue With current routine"))
-        .suggestions(Collections.singletonList("Consider consulting a fitness consultant"))
-        .safety(Arrays.asList(
-            "Always warm up before exerxise",
-            "Stay Hydrated",
-            "Listen to your body"))
-        .createdAt(LocalDateTime.now())
-        .build();
-  }
-
   private List<String> extractSafetyGuidlines(JsonNode safetyNode) {
     List<String> safety = new ArrayList<>();
     if (safetyNode.isArray()) {
@@ -163,46 +249,6 @@ public class ActivityAIService {
   }
 
   private String createPromptForActivity(Activity activity) {
-    return String.format(
-        """
-            Analyze this fitness activity and provide detailed recommendations in the following EXACT JSON format:
-            {
-              "analysis": {
-                "overall": "Overall analysis here",
-                "pace": "Pace analysis here",
-                "heartRate": "Heart rate analysis here",
-                "caloriesBurned": "Calories analysis here"
-              },
-              "improvements": [
-                {
-                  "area": "Area name",
-                  "recommendation": "Detailed recommendation"
-                }
-              ],
-              "suggestions": [
-                {
-                  "workout": "Workout name",
-                  "description": "Detailed workout description"
-                }
-              ],
-              "safety": [
-                "Safety point 1",
-                "Safety point 2"
-              ]
-            }
-
-            Analyze this activity:
-            Activity Type: %s
-            Duration: %d minutes
-            Calories Burned: %d
-            Additional Metrics: %s
-
-            Provide detailed analysis focusing on performance, improvements, next workout suggestions, and safety guidelines.
-            Ensure the response follows the EXACT JSON format shown above.
-            """,
-        activity.getType(),
-        activity.getDuration(),
-        activity.getCaloriesBurned(),
-        activity.getAdditionalMetrics());
+    return promptBuilder.build(activity);
   }
 }
@@ -1,31 +1,106 @@
 package com.fitness.aiservice.service;
 
 import com.fitness.aiservice.model.Activity;
-import com.fitness.aiservice.model.Recommendation;
-import com.fitness.aiservice.repository.RecommendationRepository;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Consumes the activity topic for the LIVE lane. Events classified as backlog
+ * are moved to their own topic rather than queued here, and a separate consumer
+ * group feeds them to the BACKLOG lane. Only that consumer ever waits for
+ * backlog capacity, so a replay never holds up live events queued behind it in
+ * the same partition.
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ActivityMessageListener {
 
-    private final ActivityAIService activityAIService;
-    private final RecommendationRepository recommendationRepository;
+    private final PriorityLaneDispatcher priorityLaneDispatcher;
+    private final AiMetrics aiMetrics;
+    private final KafkaTemplate<String, Activity> kafkaTemplate;
+
+    @Value("${kafka.topic.backlog-name:activity-events-backlog}")
+    private String backlogTopic;
+
+    @Value("${ai.lanes.forward-timeout:10s}")
+    private Duration forwardTimeout;
 
     @KafkaListener(topics = "${kafka.topic.name}", groupId = "activity-processor-group")
-    public void processActivity(Activity activity) {
-        log.info("Received activity for processing: {}", activity.getUserId());
+    public void processActivity(@Payload Activity activity,
+                                @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long timestamp,
+                                @Header(name = PriorityLaneDispatcher.SOURCE_HEADER, required = false) byte[] source,
+                                Acknowledgment acknowledgment)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        log.debug("Received activity for processing: {}", activity.getUserId());
+        Timer.Sample sample = Timer.start();
         try {
-            Recommendation recommendation = activityAIService.generateRecommendation(activity);
-            log.info("Generated recommendation: {}", recommendation);
-            Recommendation savedRecommendation = recommendationRepository.save(recommendation);
-            log.info("Successfully saved recommendation with ID: {}", savedRecommendation.getId());
-        } catch (Exception e) {
-            log.error("Failed to process activity {}: {}", activity.getId(), e.getMessage(), e);
+            PriorityLane lane = priorityLaneDispatcher.classify(activity, Instant.ofEpochMilli(timestamp),
+                    source != null ? new String(source, StandardCharsets.UTF_8) : null);
+            if (lane == PriorityLane.BACKLOG) {
+                // Only waits for the broker. A failed send is thrown, so the container redelivers the record
+                forwardToBacklog(activity).get(forwardTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                acknowledgment.acknowledge();
+                log.debug("Moved activity {} to {}", activity.getId(), backlogTopic);
+                return;
+            }
+            dispatch(activity, PriorityLane.LIVE, acknowledgment);
+        } finally {
+            sample.stop(aiMetrics.listenerTimer());
         }
     }
+
+    /**
+     * Blocks while the BACKLOG lane is full, which pauses this consumer group
+     * and nothing else.
+     */
+    @KafkaListener(topics = "${kafka.topic.backlog-name:activity-events-backlog}", groupId = "activity-backlog-group")
+    public void processBacklog(@Payload Activity activity, Acknowledgment acknowledgment) {
+        dispatch(activity, PriorityLane.BACKLOG, acknowledgment);
+    }
+
+    private void dispatch(Activity activity, PriorityLane lane, Acknowledgment acknowledgment) {
+        // The offset is committed only once the lane is done with the event, so queued events survive a crash
+        // or redeploy. With async acks every record must be acknowledged eventually, or commits stop at the gap.
+        priorityLaneDispatcher.dispatch(activity, lane).whenComplete((processed, error) -> {
+            if (error == null) {
+                acknowledgment.acknowledge();
+                log.debug("Activity {} done on lane {}", activity.getId(), lane);
+                return;
+            }
+            // never queued: the lane is shut down or the consumer was interrupted waiting for a slot
+            log.warn("Activity {} was not queued on lane {}, moving it to {}: {}",
+                    activity.getId(), lane, backlogTopic, error.getMessage());
+            forwardToBacklog(activity).whenComplete((result, sendError) -> {
+                if (sendError != null) {
+                    log.error("Activity {} was dropped, it could not be moved to {}: {}",
+                            activity.getId(), backlogTopic, sendError.getMessage(), sendError);
+                    aiMetrics.countDropped(lane);
+                }
+                acknowledgment.acknowledge();
+            });
+        });
+    }
+
+    private CompletableFuture<SendResult<String, Activity>> forwardToBacklog(Activity activity) {
+        return kafkaTemplate.send(backlogTopic, activity.getUserId(), activity);
+    }
 }
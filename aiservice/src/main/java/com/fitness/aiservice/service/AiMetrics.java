@@ -0,0 +1,151 @@
+package com.fitness.aiservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Micrometer meters for the recommendation hot path. Kafka consumer lag per
+ * partition is not registered here: Spring Boot binds the consumer's own
+ * {@code kafka.consumer.fetch.manager.records.lag} gauges (tagged by topic and
+ * partition) as soon as a MeterRegistry is present.
+ */
+@Component
+@RequiredArgsConstructor
+public class AiMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public Timer.Sample startGeminiCall() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordGeminiCall(Timer.Sample sample, ModelRoute route, String status) {
+        sample.stop(Timer.builder("ai.gemini.latency")
+                .description("Gemini generateContent call latency")
+                .tag("route", route.name())
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    public void registerRoutePermits(ModelRoute route, Semaphore permits, int maxConcurrency) {
+        Gauge.builder("ai.gemini.inflight", permits, semaphore -> maxConcurrency - semaphore.availablePermits())
+                .tag("route", route.name())
+                .register(meterRegistry);
+    }
+
+    public void recordPrompt(int estimatedTokens, int droppedFields) {
+        DistributionSummary.builder("ai.prompt.tokens.estimated")
+                .baseUnit("tokens")
+                .register(meterRegistry)
+                .record(estimatedTokens);
+        if (droppedFields > 0) {
+            Counter.builder("ai.prompt.fields.dropped")
+                    .description("Metrics left out of prompts to stay within the token budget")
+                    .register(meterRegistry)
+                    .increment(droppedFields);
+        }
+    }
+
+    public void recordResponseSize(String response) {
+        DistributionSummary.builder("ai.gemini.response.size")
+                .baseUnit("chars")
+                .register(meterRegistry)
+                .record(response != null ? response.length() : 0);
+    }
+
+    /**
+     * Records the token counts Gemini reports in {@code usageMetadata}.
+     */
+    public void recordTokenUsage(JsonNode usageMetadata) {
+        if (usageMetadata == null || usageMetadata.isMissingNode()) {
+            return;
+        }
+        recordTokens("prompt", usageMetadata.path("promptTokenCount"));
+        recordTokens("candidates", usageMetadata.path("candidatesTokenCount"));
+        recordTokens("thoughts", usageMetadata.path("thoughtsTokenCount"));
+        recordTokens("total", usageMetadata.path("totalTokenCount"));
+    }
+
+    public void countParseFailure(String reason) {
+        Counter.builder("ai.response.parse.failures")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void countFallback(String reason) {
+        Counter.builder("ai.recommendation.fallbacks")
+                .description("Recommendations served by the rule engine instead of Gemini")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void countLateResultFailure() {
+        Counter.builder("ai.recommendation.late.failures")
+                .description("Gemini results that missed the deadline and then failed or could not be stored")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void countDropped(PriorityLane lane) {
+        Counter.builder("ai.lane.dropped")
+                .description("Activity events acknowledged without being processed or moved to the backlog topic")
+                .tag("lane", lane.name())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public Timer listenerTimer() {
+        return Timer.builder("ai.listener.processing")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Timer processingTimer(PriorityLane lane) {
+        return Timer.builder("ai.recommendation.processing")
+                .tag("lane", lane.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the time from activityservice storing an activity to a recommendation
+     * for it being stored here, late Gemini replacements included. Both timestamps
+     * are local date-times, so this assumes both services share a time zone.
+     */
+    public void recordFreshness(LocalDateTime activityCreatedAt, String source, PriorityLane lane) {
+        if (activityCreatedAt == null) {
+            return;
+        }
+        Duration age = Duration.between(activityCreatedAt, LocalDateTime.now());
+        Timer.builder("ai.recommendation.freshness")
+                .description("Time from activity creation to stored recommendation")
+                .tag("source", String.valueOf(source))
+                .tag("lane", lane.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(age.isNegative() ? Duration.ZERO : age);
+    }
+
+    private void recordTokens(String type, JsonNode count) {
+        if (count.isNumber()) {
+            DistributionSummary.builder("ai.gemini.tokens")
+                    .baseUnit("tokens")
+                    .tag("type", type)
+                    .register(meterRegistry)
+                    .record(count.asLong());
+        }
+    }
+}
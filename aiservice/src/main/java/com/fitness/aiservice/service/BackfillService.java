@@ -0,0 +1,340 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.dto.BackfillRequest;
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.BackfillJob;
+import com.fitness.aiservice.model.BackfillSource;
+import com.fitness.aiservice.model.BackfillStatus;
+import com.fitness.aiservice.repository.BackfillJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Regenerates recommendations for existing activities, read either from a
+ * mongoexport file of the activities collection or by replaying the activity
+ * topic. Work goes through the BACKLOG lane of {@link PriorityLaneDispatcher},
+ * so a backfill is bounded by that lane's concurrency and never takes threads
+ * from live traffic.
+ *
+ * <p>Export files are named relative to {@code ai.backfill.export-dir} and
+ * must stay inside it.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BackfillService {
+
+    private final BackfillJobRepository backfillJobRepository;
+    private final PriorityLaneDispatcher priorityLaneDispatcher;
+    private final ConsumerFactory<?, ?> consumerFactory;
+    private final MongoTemplate mongoTemplate;
+
+    @Qualifier("backfillExecutor")
+    private final Executor backfillExecutor;
+
+    private final Set<String> cancelRequested = ConcurrentHashMap.newKeySet();
+    private final Set<String> activeJobs = ConcurrentHashMap.newKeySet();
+
+    @Value("${kafka.topic.name}")
+    private String topicName;
+
+    @Value("${ai.backfill.chunk-size:100}")
+    private int defaultChunkSize;
+
+    @Value("${ai.backfill.live-backoff:500ms}")
+    private Duration liveBackoff;
+
+    @Value("${ai.backfill.export-dir:backfill-exports}")
+    private String exportDir;
+
+    public BackfillJob start(BackfillRequest request) {
+        if (request.getSource() == BackfillSource.MONGO_EXPORT) {
+            resolveExport(request.getExportPath());
+        }
+        BackfillJob job = backfillJobRepository.save(BackfillJob.builder()
+                .source(request.getSource())
+                .status(BackfillStatus.RUNNING)
+                .chunkSize(request.getChunkSize() != null ? request.getChunkSize() : defaultChunkSize)
+                .exportPath(request.getExportPath())
+                .fromTimestamp(request.getFromTimestamp())
+                .fromOffset(request.getFromOffset())
+                .build());
+        launch(job);
+        return job;
+    }
+
+    public BackfillJob resume(String jobId) {
+        BackfillJob job = getJob(jobId);
+        if (job.getStatus() == BackfillStatus.COMPLETED) {
+            return job;
+        }
+        job.setStatus(BackfillStatus.RUNNING);
+        job.setError(null);
+        BackfillJob saved = backfillJobRepository.save(job);
+        launch(saved);
+        return saved;
+    }
+
+    public BackfillJob cancel(String jobId) {
+        BackfillJob job = getJob(jobId);
+        if (activeJobs.contains(jobId)) {
+            cancelRequested.add(jobId);
+        } else if (job.getStatus() == BackfillStatus.RUNNING) {
+            // left RUNNING by a restart; nothing is executing it
+            job.setStatus(BackfillStatus.CANCELLED);
+            return backfillJobRepository.save(job);
+        }
+        return job;
+    }
+
+    public BackfillJob getJob(String jobId) {
+        return backfillJobRepository.findById(jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Backfill job not found: " + jobId));
+    }
+
+    private void launch(BackfillJob job) {
+        if (!activeJobs.add(job.getId())) {
+            log.info("Backfill job {} is already running", job.getId());
+            return;
+        }
+        try {
+            backfillExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            // every backfill thread is busy and the executor has no queue
+            activeJobs.remove(job.getId());
+            log.warn("Backfill job {} rejected, {} jobs already running", job.getId(), activeJobs.size());
+            job.setStatus(BackfillStatus.FAILED);
+            job.setError("Too many backfill jobs running; resume this job once one finishes");
+            backfillJobRepository.save(job);
+        }
+    }
+
+    private void run(BackfillJob job) {
+        try {
+            if (job.getSource() == BackfillSource.MONGO_EXPORT) {
+                runExport(job);
+            } else {
+                runReplay(job);
+            }
+            job.setStatus(cancelRequested.contains(job.getId()) ? BackfillStatus.CANCELLED : BackfillStatus.COMPLETED);
+        } catch (Exception e) {
+            log.error("Backfill job {} failed: {}", job.getId(), e.getMessage(), e);
+            job.setStatus(BackfillStatus.FAILED);
+            job.setError(e.getMessage());
+        } finally {
+            backfillJobRepository.save(job);
+            cancelRequested.remove(job.getId());
+            activeJobs.remove(job.getId());
+            log.info("Backfill job {} finished with status {}: {}/{} processed, {} failed",
+                    job.getId(), job.getStatus(), job.getProcessed(), job.getTotal(), job.getFailed());
+        }
+    }
+
+    private void runExport(BackfillJob job) throws IOException, InterruptedException {
+        Path export = resolveExport(job.getExportPath());
+        if (job.getTotal() == 0) {
+            try (Stream<String> lines = Files.lines(export)) {
+                job.setTotal(lines.filter(line -> !line.isBlank()).count());
+            }
+            backfillJobRepository.save(job);
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(export)) {
+            for (long skipped = 0; skipped < job.getLineCheckpoint(); skipped++) {
+                if (reader.readLine() == null) {
+                    return;
+                }
+            }
+            List<String> chunk = new ArrayList<>(job.getChunkSize());
+            String line;
+            while (!cancelRequested.contains(job.getId()) && (line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() == job.getChunkSize()) {
+                    processExportChunk(job, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty() && !cancelRequested.contains(job.getId())) {
+                processExportChunk(job, chunk);
+            }
+        }
+    }
+
+    private void processExportChunk(BackfillJob job, List<String> lines) throws InterruptedException {
+        List<Activity> activities = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                Document document = Document.parse(line);
+                document.remove("_class");
+                activities.add(mongoTemplate.getConverter().read(Activity.class, document));
+            } catch (Exception e) {
+                log.warn("Skipping unreadable export line in backfill job {}: {}", job.getId(), e.getMessage());
+                job.setFailed(job.getFailed() + 1);
+            }
+        }
+        processChunk(job, activities);
+        job.setLineCheckpoint(job.getLineCheckpoint() + lines.size());
+        backfillJobRepository.save(job);
+    }
+
+    private void runReplay(BackfillJob job) throws InterruptedException {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(job.getChunkSize()));
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+        try (Consumer<?, ?> consumer = consumerFactory.createConsumer(
+                "activity-backfill-" + job.getId(), null, null, overrides)) {
+            List<TopicPartition> partitions = consumer.partitionsFor(topicName).stream()
+                    .map(info -> new TopicPartition(topicName, info.partition()))
+                    .toList();
+            if (job.getEndOffsets() == null) {
+                initReplayRange(job, consumer, partitions);
+            } else {
+                // only replay the partitions that existed when the job started
+                partitions = partitions.stream()
+                        .filter(tp -> job.getEndOffsets().containsKey(key(tp)))
+                        .toList();
+            }
+            consumer.assign(partitions);
+            partitions.forEach(tp -> consumer.seek(tp, job.getOffsetCheckpoints().get(key(tp))));
+
+            while (!cancelRequested.contains(job.getId()) && !replayDone(job)) {
+                List<Activity> activities = new ArrayList<>();
+                for (ConsumerRecord<?, ?> record : consumer.poll(Duration.ofSeconds(1))) {
+                    if (record.offset() >= job.getEndOffsets().get(String.valueOf(record.partition()))) {
+                        continue;
+                    }
+                    if (record.value() instanceof Activity activity) {
+                        activities.add(activity);
+                    } else {
+                        job.setFailed(job.getFailed() + 1);
+                    }
+                }
+                processChunk(job, activities);
+                // The consumer position rather than the last record offset: compaction and transaction
+                // markers leave offsets with no record, and the position moves past them
+                for (TopicPartition tp : partitions) {
+                    job.getOffsetCheckpoints().put(key(tp),
+                            Math.min(consumer.position(tp), job.getEndOffsets().get(key(tp))));
+                }
+                backfillJobRepository.save(job);
+            }
+        }
+    }
+
+    private void initReplayRange(BackfillJob job, Consumer<?, ?> consumer, List<TopicPartition> partitions) {
+        Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+        Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+        Map<TopicPartition, Long> start = new HashMap<>(beginning);
+
+        if (job.getFromTimestamp() != null) {
+            long epochMillis = job.getFromTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            Map<TopicPartition, OffsetAndTimestamp> byTime = consumer.offsetsForTimes(
+                    partitions.stream().collect(Collectors.toMap(tp -> tp, tp -> epochMillis)));
+            partitions.forEach(tp -> start.put(tp, byTime.get(tp) != null ? byTime.get(tp).offset() : end.get(tp)));
+        } else if (job.getFromOffset() != null) {
+            partitions.forEach(tp -> start.put(tp,
+                    Math.min(end.get(tp), Math.max(beginning.get(tp), job.getFromOffset()))));
+        }
+
+        job.setOffsetCheckpoints(new HashMap<>());
+        job.setEndOffsets(new HashMap<>());
+        long total = 0;
+        for (TopicPartition tp : partitions) {
+            job.getOffsetCheckpoints().put(key(tp), start.get(tp));
+            job.getEndOffsets().put(key(tp), end.get(tp));
+            total += end.get(tp) - start.get(tp);
+        }
+        job.setTotal(total);
+        backfillJobRepository.save(job);
+    }
+
+    /**
+     * Resolves an export file name against the export directory. Names that
+     * leave the directory, through {@code ..}, an absolute path or a symlink,
+     * get the same answer as missing files, so a caller learns nothing about
+     * the rest of the file system.
+     */
+    Path resolveExport(String exportPath) {
+        if (exportPath != null && !exportPath.isBlank()) {
+            Path base = Path.of(exportDir).toAbsolutePath().normalize();
+            Path resolved = base.resolve(exportPath).normalize();
+            try {
+                if (resolved.startsWith(base) && Files.isRegularFile(resolved) && Files.isReadable(resolved)
+                        && resolved.toRealPath().startsWith(base.toRealPath())) {
+                    return resolved;
+                }
+            } catch (IOException e) {
+                log.debug("Cannot resolve backfill export {}: {}", exportPath, e.getMessage());
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "exportPath must name a readable file in the backfill export directory");
+    }
+
+    private boolean replayDone(BackfillJob job) {
+        return job.getEndOffsets().entrySet().stream()
+                .allMatch(e -> job.getOffsetCheckpoints().getOrDefault(e.getKey(), 0L) >= e.getValue());
+    }
+
+    /**
+     * Pushes one chunk through the BACKLOG lane and waits for all of it, so the
+     * checkpoint written afterwards never skips unprocessed work.
+     */
+    private void processChunk(BackfillJob job, List<Activity> activities) throws InterruptedException {
+        if (activities.isEmpty()) {
+            return;
+        }
+        // Gemini quota is shared with live traffic: hold back while live work is queued
+        while (priorityLaneDispatcher.queueDepth(PriorityLane.LIVE) > 0) {
+            Thread.sleep(liveBackoff.toMillis());
+        }
+        List<CompletableFuture<Boolean>> results = activities.stream()
+                .map(activity -> priorityLaneDispatcher.dispatch(activity, PriorityLane.BACKLOG)
+                        .exceptionally(e -> false))
+                .toList();
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+        long succeeded = results.stream().filter(CompletableFuture::join).count();
+        job.setProcessed(job.getProcessed() + succeeded);
+        job.setFailed(job.getFailed() + results.size() - succeeded);
+    }
+
+    private static String key(TopicPartition tp) {
+        return String.valueOf(tp.partition());
+    }
+}
@@ -1,13 +1,21 @@
 package com.fitness.aiservice.service;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
@@ -15,6 +23,7 @@ import java.util.Map;
 public class GeminiService {
 
         private final WebClient.Builder webClientBuilder;
+        private final AiMetrics aiMetrics;
 
         @Value("${gemini.api.url}")
         private String geminiApiUrl;
@@ -22,13 +31,60 @@ public class GeminiService {
         @Value("${GEMINI_KEY}")
         private String geminiApiKey;
 
+        @Value("${gemini.api.timeout-ms:60000}")
+        private long timeoutMs;
+
+        @Value("${gemini.models.fast.url:${gemini.api.url}}")
+        private String fastModelUrl;
+
+        @Value("${gemini.models.fast.max-concurrency:8}")
+        private int fastMaxConcurrency;
+
+        @Value("${gemini.models.rich.max-concurrency:4}")
+        private int richMaxConcurrency;
+
+        private final Map<ModelRoute, Semaphore> routePermits = new EnumMap<>(ModelRoute.class);
+
         @PostConstruct
         public void init() {
                 log.info("Gemini API URL: {}", geminiApiUrl);
+                log.info("Gemini fast model URL: {}", fastModelUrl);
                 log.info("Gemini API Key present: {}", geminiApiKey != null && !geminiApiKey.isEmpty());
+                routePermits.put(ModelRoute.FAST, new Semaphore(fastMaxConcurrency));
+                routePermits.put(ModelRoute.RICH, new Semaphore(richMaxConcurrency));
+                aiMetrics.registerRoutePermits(ModelRoute.FAST, routePermits.get(ModelRoute.FAST), fastMaxConcurrency);
+                aiMetrics.registerRoutePermits(ModelRoute.RICH, routePermits.get(ModelRoute.RICH), richMaxConcurrency);
         }
 
         public String getRecommendations(String details) {
+                return getRecommendations(details, ModelRoute.RICH);
+        }
+
+        /**
+         * Calls the model behind {@code route}. Each route has its own concurrency
+         * limit; a caller waits up to the call timeout for a permit before failing.
+         */
+        public String getRecommendations(String details, ModelRoute route) {
+                Semaphore permits = routePermits.get(route);
+                if (permits == null) {
+                        throw new IllegalArgumentException("No Gemini model configured for route " + route);
+                }
+                try {
+                        if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                                throw new IllegalStateException("No Gemini capacity left on route " + route);
+                        }
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted waiting for Gemini capacity", e);
+                }
+                try {
+                        return call(route == ModelRoute.FAST ? fastModelUrl : geminiApiUrl, details, route);
+                } finally {
+                        permits.release();
+                }
+        }
+
+        private String call(String url, String details, ModelRoute route) {
                 Map<String, Object> requestBody = Map.of(
                                 "contents", new Object[] {
                                                 Map.of("parts", new Object[] {
@@ -36,16 +92,33 @@ public class GeminiService {
                                                 })
                                 });
 
-                String response = webClientBuilder.build()
-                                .post()
-                                .uri(geminiApiUrl)
-                                .header("Content-Type", "application/json")
-                                .header("x-goog-api-key", geminiApiKey)
-                                .bodyValue(requestBody)
-                                .retrieve()
-                                .bodyToMono(String.class)
-                                .block();
-
-                return response;
+                Timer.Sample sample = aiMetrics.startGeminiCall();
+                String status = "ERROR";
+                try {
+                        ResponseEntity<String> response = webClientBuilder.build()
+                                        .post()
+                                        .uri(url)
+                                        .header("Content-Type", "application/json")
+                                        .header("x-goog-api-key", geminiApiKey)
+                                        .bodyValue(requestBody)
+                                        .retrieve()
+                                        .toEntity(String.class)
+                                        .timeout(Duration.ofMillis(timeoutMs))
+                                        .block();
+
+                        status = String.valueOf(response.getStatusCode().value());
+                        aiMetrics.recordResponseSize(response.getBody());
+                        return response.getBody();
+                } catch (WebClientResponseException e) {
+                        status = String.valueOf(e.getStatusCode().value());
+                        throw e;
+                } catch (RuntimeException e) {
+                        if (e.getCause() instanceof TimeoutException) {
+                                status = "TIMEOUT";
+                        }
+                        throw e;
+                } finally {
+                        aiMetrics.recordGeminiCall(sample, route, status);
+                }
         }
 }
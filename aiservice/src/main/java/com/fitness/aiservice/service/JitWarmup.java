@@ -0,0 +1,114 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.config.ActivityEventKafkaDeserializer;
+import com.fitness.aiservice.model.Activity;
+import com.fitness.events.ActivityEvent;
+import com.fitness.events.ActivityEventCodec;
+import com.fitness.events.ActivityEventType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs activity-event decoding through the topic's value deserializer, Gemini
+ * response parsing and the rule engine in a loop at startup, so the JIT compiles them before real traffic.
+ * Nothing is sent to Gemini or saved. The loop runs in lifecycle phase -1,
+ * before Eureka registration (phase 0) and before the Kafka listener
+ * containers start, so the instance takes no work until it is warm.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JitWarmup implements SmartLifecycle {
+
+    // same shape as a generateContent response, without usageMetadata so no token metrics are recorded
+    private static final String SAMPLE_GEMINI_RESPONSE = """
+            {"candidates":[{"content":{"parts":[{"text":"```json\\n{\\"analysis\\":{\\"overall\\":\\"Solid steady-state session.\\",\
+            \\"pace\\":\\"Consistent pace throughout.\\",\\"heartRate\\":\\"Mostly zone 2.\\",\\"caloriesBurned\\":\\"In line with duration.\\"},\
+            \\"improvements\\":[{\\"area\\":\\"Intensity\\",\\"recommendation\\":\\"Add short intervals.\\"}],\
+            \\"suggestions\\":[{\\"workout\\":\\"Tempo Run\\",\\"description\\":\\"20 minutes at threshold pace.\\"}],\
+            \\"safety\\":[\\"Warm up first\\",\\"Stay hydrated\\"]}\\n```"}]}}]}
+            """;
+
+    private final ActivityEventKafkaDeserializer deserializer = new ActivityEventKafkaDeserializer();
+    private final ActivityAIService activityAIService;
+    private final RuleBasedRecommendationEngine ruleEngine;
+
+    // checked in start(), so jars built with -Paot-cds still honour it
+    @Value("${ai.warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ai.warmup.iterations:20000}")
+    private int iterations;
+
+    @Value("${ai.warmup.max-duration:20s}")
+    private Duration maxDuration;
+
+    @Value("${kafka.topic.name}")
+    private String topicName;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            running = true;
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        int completed = 0;
+        try {
+            while (completed < iterations && System.nanoTime() < deadline) {
+                // the bytes activityservice's ActivityEventKafkaSerializer would publish
+                byte[] record = ActivityEventCodec.encode(sampleEvent(completed));
+                Activity activity = deserializer.deserialize(topicName, record);
+                activityAIService.processAIResponse(activity, SAMPLE_GEMINI_RESPONSE);
+                ruleEngine.recommend(activity);
+                completed++;
+            }
+        } catch (Exception e) {
+            log.warn("JIT warm-up stopped after {} iterations: {}", completed, e.getMessage());
+        }
+        log.info("JIT warm-up ran {} iterations in {} ms", completed, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return -1;
+    }
+
+    private ActivityEvent sampleEvent(int i) {
+        ActivityEvent event = new ActivityEvent();
+        event.setId("warmup-" + i);
+        event.setUserId("warmup-user");
+        event.setType(ActivityEventType.values()[i % ActivityEventType.values().length]);
+        event.setDuration(20 + i % 60);
+        event.setCaloriesBurned(150 + i % 400);
+        event.setStartTime(LocalDateTime.now());
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("distance", 5.2);
+        metrics.put("heartRate", 140L + i % 30);
+        metrics.put("steps", 6000L + i);
+        event.setMetrics(metrics);
+        return event;
+    }
+}
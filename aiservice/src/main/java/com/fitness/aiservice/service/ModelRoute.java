@@ -0,0 +1,10 @@
+package com.fitness.aiservice.service;
+
+public enum ModelRoute {
+    /** Answered locally by the rule engine, no Gemini call. */
+    TEMPLATE,
+    /** Cheaper, lower-latency model for ordinary sessions. */
+    FAST,
+    /** Strongest model, for long or metric-rich sessions. */
+    RICH
+}
@@ -0,0 +1,81 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Scores how much an activity can benefit from an LLM and picks a
+ * {@link ModelRoute} for it. The score adds a weight for the activity type,
+ * one point per half hour of duration (up to 3) and one point per usable
+ * metric (up to 5); thresholds come from the config server.
+ *
+ * <p>This is deliberate for activities with no metrics: with the default
+ * thresholds a 25-minute run scores 1 and gets the rule-based template, since
+ * type and duration are all a model would have to go on too. From 30 minutes,
+ * or with a single metric, it goes to the fast model.
+ */
+@Component
+@RequiredArgsConstructor
+public class ModelRouter {
+
+    private static final int MAX_DURATION_POINTS = 3;
+    private static final int MAX_METRIC_POINTS = 5;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ai.routing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.routing.template-max-score:1}")
+    private int templateMaxScore;
+
+    @Value("${ai.routing.fast-max-score:4}")
+    private int fastMaxScore;
+
+    public ModelRoute route(Activity activity) {
+        ModelRoute route = enabled ? routeForScore(score(activity)) : ModelRoute.RICH;
+        meterRegistry.counter("ai.routing.decisions", "route", route.name()).increment();
+        return route;
+    }
+
+    int score(Activity activity) {
+        int score = typeWeight(activity);
+        if (activity.getDuration() != null) {
+            score += Math.min(MAX_DURATION_POINTS, activity.getDuration() / 30);
+        }
+        score += Math.min(MAX_METRIC_POINTS, usableMetrics(activity.getAdditionalMetrics()));
+        return score;
+    }
+
+    private ModelRoute routeForScore(int score) {
+        if (score <= templateMaxScore) {
+            return ModelRoute.TEMPLATE;
+        }
+        return score <= fastMaxScore ? ModelRoute.FAST : ModelRoute.RICH;
+    }
+
+    private int typeWeight(Activity activity) {
+        if (activity.getType() == null) {
+            return 1;
+        }
+        return switch (activity.getType()) {
+            case STRETCHING, YOGA, WALKING -> 0;
+            case HIIT, WEIGHT_TRAINING -> 2;
+            default -> 1;
+        };
+    }
+
+    private int usableMetrics(Map<String, Object> metrics) {
+        if (metrics == null) {
+            return 0;
+        }
+        return (int) metrics.values().stream()
+                .filter(value -> value instanceof Number || value instanceof String text && !text.isBlank())
+                .count();
+    }
+}
@@ -0,0 +1,23 @@
+package com.fitness.aiservice.service;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether full prompt/response payloads get logged. Payloads are only
+ * logged at DEBUG and only for a sample of calls, since formatting them on
+ * every message showed up as a real CPU and I/O cost.
+ */
+@Component
+public class PayloadLogSampler {
+
+    @Value("${ai.logging.payload-sample-rate:0.01}")
+    private double sampleRate;
+
+    public boolean shouldLog(Logger logger) {
+        return logger.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
@@ -0,0 +1,160 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Phrase;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content-addressed store for recurring recommendation phrases. A phrase is
+ * keyed by the first 64 bits of its SHA-256 (11 base64url chars), and an LRU
+ * interning cache keeps hot phrases in memory so most writes skip the upsert
+ * and most reads expand without touching the dictionary collection.
+ *
+ * <p>Only phrases seen {@code ai.phrases.min-occurrences} times are added to
+ * the dictionary. Until then a phrase is stored inline, prefixed with
+ * {@value #INLINE_PREFIX}, so one-off LLM sentences never grow the dictionary.
+ * Occurrences are counted in memory, in an LRU map as large as the cache.
+ */
+@Service
+@Slf4j
+public class PhraseDictionary {
+    static final String INLINE_PREFIX = "~";
+
+    private final MongoTemplate mongoTemplate;
+    private final int minOccurrences;
+    private final Map<String, String> cache;
+    private final Map<String, Integer> sightings;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    public PhraseDictionary(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+                            @Value("${ai.phrases.cache-size:10000}") int cacheSize,
+                            @Value("${ai.phrases.min-occurrences:3}") int minOccurrences) {
+        this.mongoTemplate = mongoTemplate;
+        this.minOccurrences = minOccurrences;
+        this.cache = lru(cacheSize);
+        this.sightings = lru(cacheSize);
+        this.cacheHits = meterRegistry.counter("ai.phrases.cache", "result", "hit");
+        this.cacheMisses = meterRegistry.counter("ai.phrases.cache", "result", "miss");
+    }
+
+    /**
+     * Returns the stored form of each phrase: its ref once it recurs, otherwise
+     * the phrase itself marked inline. Phrases that just reached the threshold
+     * are stored in a single bulk upsert.
+     */
+    public List<String> intern(List<String> phrases) {
+        List<String> entries = new ArrayList<>(phrases.size());
+        Map<String, String> recurring = new HashMap<>();
+        for (String phrase : phrases) {
+            String ref = ref(phrase);
+            if (cache.containsKey(ref)) {
+                cacheHits.increment();
+                entries.add(ref);
+            } else if (sightings.merge(ref, 1, Integer::sum) >= minOccurrences) {
+                cacheMisses.increment();
+                recurring.put(ref, phrase);
+                entries.add(ref);
+            } else {
+                entries.add(INLINE_PREFIX + phrase);
+            }
+        }
+        if (!recurring.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Phrase.class);
+            recurring.forEach((ref, phrase) -> bulk.upsert(
+                    Query.query(Criteria.where("_id").is(ref)),
+                    new Update().setOnInsert("text", phrase)));
+            bulk.execute();
+            cache.putAll(recurring);
+            recurring.keySet().forEach(sightings::remove);
+        }
+        return entries;
+    }
+
+    /**
+     * Looks up the text of every ref among the entries, from the cache where
+     * possible and with a single {@code $in} query for the rest. Pass the entries
+     * of a whole result list at once to avoid a query per recommendation.
+     */
+    public Map<String, String> resolve(Collection<String> entries) {
+        Map<String, String> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String entry : entries) {
+            if (entry.startsWith(INLINE_PREFIX) || found.containsKey(entry)) {
+                continue;
+            }
+            String text = cache.get(entry);
+            if (text != null) {
+                cacheHits.increment();
+                found.put(entry, text);
+            } else {
+                cacheMisses.increment();
+                missing.add(entry);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Phrase phrase : mongoTemplate.find(Query.query(Criteria.where("_id").in(missing)), Phrase.class)) {
+                found.put(phrase.getId(), phrase.getText());
+                cache.put(phrase.getId(), phrase.getText());
+            }
+        }
+        return found;
+    }
+
+    /** Turns stored entries back into text, using refs already looked up with {@link #resolve}. */
+    public List<String> expand(List<String> entries, Map<String, String> resolved) {
+        List<String> phrases = new ArrayList<>(entries.size());
+        for (String entry : entries) {
+            if (entry.startsWith(INLINE_PREFIX)) {
+                phrases.add(entry.substring(INLINE_PREFIX.length()));
+                continue;
+            }
+            String text = resolved.get(entry);
+            if (text == null) {
+                log.warn("Recommendation phrase {} is missing from the dictionary", entry);
+                continue;
+            }
+            phrases.add(text);
+        }
+        return phrases;
+    }
+
+    static String ref(String phrase) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(phrase.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static <V> Map<String, V> lru(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+}
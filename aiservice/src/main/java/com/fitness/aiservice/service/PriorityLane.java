@@ -0,0 +1,8 @@
+package com.fitness.aiservice.service;
+
+public enum PriorityLane {
+    /** Events for activities that were just logged; a user is likely waiting for the result. */
+    LIVE,
+    /** Replayed, bulk-imported or stale events that can drain in the background. */
+    BACKLOG
+}
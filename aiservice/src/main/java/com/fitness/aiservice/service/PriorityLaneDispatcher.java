@@ -0,0 +1,205 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sorts incoming activity events into {@link PriorityLane}s, each with its own
+ * worker pool. The worker count of a lane is its share of Gemini capacity, so a
+ * replay backlog can never occupy the threads that serve live traffic.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PriorityLaneDispatcher {
+
+    public static final String SOURCE_HEADER = "x-activity-source";
+    public static final String BULK_SOURCE = "bulk-import";
+
+    private final ActivityAIService activityAIService;
+    private final MeterRegistry meterRegistry;
+    private final AiMetrics aiMetrics;
+    private final ObservationRegistry observationRegistry;
+
+    @Value("${ai.lanes.backlog-age-threshold:5m}")
+    private Duration backlogAgeThreshold;
+
+    @Value("${ai.lanes.live.concurrency:6}")
+    private int liveConcurrency;
+
+    @Value("${ai.lanes.live.queue-capacity:200}")
+    private int liveQueueCapacity;
+
+    @Value("${ai.lanes.backlog.concurrency:2}")
+    private int backlogConcurrency;
+
+    @Value("${ai.lanes.backlog.queue-capacity:50}")
+    private int backlogQueueCapacity;
+
+    private final Map<PriorityLane, ThreadPoolExecutor> lanes = new EnumMap<>(PriorityLane.class);
+    // one permit per worker plus one per queue slot, so execute() never overflows the queue
+    private final Map<PriorityLane, Semaphore> laneSlots = new EnumMap<>(PriorityLane.class);
+
+    @PostConstruct
+    public void init() {
+        lanes.put(PriorityLane.LIVE, newLane(PriorityLane.LIVE, liveConcurrency, liveQueueCapacity));
+        lanes.put(PriorityLane.BACKLOG, newLane(PriorityLane.BACKLOG, backlogConcurrency, backlogQueueCapacity));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.values().forEach(ThreadPoolExecutor::shutdown);
+    }
+
+    public PriorityLane classify(Activity activity, Instant publishedAt, String source) {
+        if (BULK_SOURCE.equalsIgnoreCase(source)) {
+            return PriorityLane.BACKLOG;
+        }
+        if (publishedAt != null && Duration.between(publishedAt, Instant.now()).compareTo(backlogAgeThreshold) > 0) {
+            return PriorityLane.BACKLOG;
+        }
+        return PriorityLane.LIVE;
+    }
+
+    /**
+     * Queues the activity on its lane. Blocks the caller while the lane is full,
+     * which in turn slows down whichever consumer feeds that lane instead of
+     * buffering an unbounded backlog in memory. The live topic's consumer must
+     * not wait on the BACKLOG lane, so it moves backlog work to the backlog
+     * topic instead of calling this for it.
+     *
+     * @return completes with {@code true} once the recommendation is stored, or
+     * {@code false} if processing failed; completes exceptionally if the activity
+     * was never processed because the lane is shut down or the caller was interrupted
+     */
+    public CompletableFuture<Boolean> dispatch(Activity activity, PriorityLane lane) {
+        Semaphore slots = laneSlots.get(lane);
+        LaneTask task = new LaneTask(lane, Instant.now(), activity, observationRegistry.getCurrentObservation(), slots);
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while queueing activity {} on lane {}", activity.getId(), lane);
+            task.done.completeExceptionally(e);
+            return task.done;
+        }
+        try {
+            lanes.get(lane).execute(task);
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            log.warn("Lane {} is shut down, activity {} was not queued", lane, activity.getId());
+            task.done.completeExceptionally(e);
+        }
+        return task.done;
+    }
+
+    public int queueDepth(PriorityLane lane) {
+        return lanes.get(lane).getQueue().size();
+    }
+
+    private void process(LaneTask task) {
+        meterRegistry.timer("ai.lane.wait", "lane", task.lane.name())
+                .record(Duration.between(task.enqueuedAt, Instant.now()));
+        // Lane threads are fed straight from the queue, so the Kafka listener's trace is reattached here
+        Observation observation = Observation.createNotStarted("ai.recommendation.generate", observationRegistry)
+                .parentObservation(task.parent)
+                .contextualName("generate recommendation")
+                .lowCardinalityKeyValue("lane", task.lane.name())
+                .highCardinalityKeyValue("activity.id", String.valueOf(task.activity.getId()));
+        try {
+            aiMetrics.processingTimer(task.lane)
+                    .record(() -> observation.observe(
+                            () -> activityAIService.generateRecommendation(task.activity, task.lane)));
+            task.done.complete(true);
+        } catch (Exception e) {
+            log.error("Failed to process activity {} on lane {}: {}",
+                    task.activity.getId(), task.lane, e.getMessage(), e);
+            task.done.complete(false);
+        }
+    }
+
+    private ThreadPoolExecutor newLane(PriorityLane lane, int concurrency, int queueCapacity) {
+        laneSlots.put(lane, new Semaphore(concurrency + queueCapacity));
+        BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>(queueCapacity);
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS, queue,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "lane-" + lane.name().toLowerCase() + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("ai.lane.queue.depth", queue, BlockingQueue::size)
+                .tag("lane", lane.name())
+                .description("Activities waiting in the lane queue")
+                .register(meterRegistry);
+        Gauge.builder("ai.lane.queue.oldest.age", queue, PriorityLaneDispatcher::oldestAgeSeconds)
+                .tag("lane", lane.name())
+                .baseUnit("seconds")
+                .description("Time the oldest queued activity has been waiting")
+                .register(meterRegistry);
+        Timer.builder("ai.lane.wait")
+                .tag("lane", lane.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        executor.prestartAllCoreThreads();
+        return executor;
+    }
+
+    private static double oldestAgeSeconds(BlockingQueue<Runnable> queue) {
+        Runnable head = queue.peek();
+        if (head instanceof LaneTask task) {
+            return Duration.between(task.enqueuedAt, Instant.now()).toMillis() / 1000.0;
+        }
+        return 0;
+    }
+
+    private final class LaneTask implements Runnable {
+        private final PriorityLane lane;
+        private final Instant enqueuedAt;
+        private final Activity activity;
+        private final Observation parent;
+        private final Semaphore slots;
+        private final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+        private LaneTask(PriorityLane lane, Instant enqueuedAt, Activity activity, Observation parent, Semaphore slots) {
+            this.lane = lane;
+            this.enqueuedAt = enqueuedAt;
+            this.activity = activity;
+            this.parent = parent;
+            this.slots = slots;
+        }
+
+        @Override
+        public void run() {
+            try {
+                process(this);
+            } finally {
+                slots.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds Gemini prompts as a static instruction prefix followed by a compact
+ * activity line such as {@code type=RUNNING;dur=45min;kcal=420;hr=152bpm}.
+ * The activity line is trimmed to a token budget.
+ *
+ * <p>The prefix is byte-identical across calls, but at about 100 tokens it is
+ * far below the 1024-token minimum for Gemini's implicit context caching, so
+ * every call is billed for it in full. Explicit cached content has the same
+ * minimum; the prefix would have to grow tenfold before caching pays off.
+ */
+@Component
+@RequiredArgsConstructor
+public class PromptBuilder {
+
+    static final String INSTRUCTION_PREFIX = """
+            You are a fitness coach. Analyze the activity below (key=value;...) and reply with JSON only, no prose, in this shape:
+            {"analysis":{"overall":str,"pace":str,"heartRate":str,"caloriesBurned":str},\
+            "improvements":[{"area":str,"recommendation":str}],\
+            "suggestions":[{"workout":str,"description":str}],\
+            "safety":[str]}
+            Focus on performance, improvements, next workout suggestions and safety.
+            Activity:
+            """;
+
+    /** Rough size of a Gemini token for English/ASCII text. */
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int MAX_VALUE_CHARS = 40;
+
+    /** Suffix of the optional metric that carries another metric's unit, e.g. {@code distanceUnit=mi}. */
+    private static final String UNIT_SUFFIX = "Unit";
+
+    /**
+     * Well-known metrics in priority order, with the short key used in the prompt
+     * and the unit implied by the metric itself. Metrics whose unit depends on the
+     * client (distance, pace, speed, elevation, load) have none here; they get a
+     * unit only when the client sends one as {@code <metric>Unit}.
+     */
+    private static final Map<String, String[]> KNOWN_METRICS = new LinkedHashMap<>();
+
+    static {
+        KNOWN_METRICS.put("distance", new String[]{"dist", ""});
+        KNOWN_METRICS.put("heartRate", new String[]{"hr", "bpm"});
+        KNOWN_METRICS.put("avgHeartRate", new String[]{"hr", "bpm"});
+        KNOWN_METRICS.put("maxHeartRate", new String[]{"hrMax", "bpm"});
+        KNOWN_METRICS.put("pace", new String[]{"pace", ""});
+        KNOWN_METRICS.put("averageSpeed", new String[]{"spd", ""});
+        KNOWN_METRICS.put("steps", new String[]{"steps", ""});
+        KNOWN_METRICS.put("cadence", new String[]{"cad", "spm"});
+        KNOWN_METRICS.put("elevationGain", new String[]{"elev", ""});
+        KNOWN_METRICS.put("sets", new String[]{"sets", ""});
+        KNOWN_METRICS.put("reps", new String[]{"reps", ""});
+        KNOWN_METRICS.put("weight", new String[]{"load", ""});
+    }
+
+    private final AiMetrics aiMetrics;
+
+    @Value("${ai.prompt.max-activity-tokens:120}")
+    private int maxActivityTokens;
+
+    public String build(Activity activity) {
+        List<String> fields = new ArrayList<>();
+        if (activity.getType() != null) {
+            fields.add("type=" + activity.getType());
+        }
+        if (activity.getDuration() != null && activity.getDuration() > 0) {
+            fields.add("dur=" + activity.getDuration() + "min");
+        }
+        if (activity.getCaloriesBurned() != null && activity.getCaloriesBurned() > 0) {
+            fields.add("kcal=" + activity.getCaloriesBurned());
+        }
+        int required = fields.size();
+        fields.addAll(encodeMetrics(activity.getAdditionalMetrics()));
+
+        // Metrics are ordered by relevance, so drop from the end until the line fits the budget
+        int dropped = 0;
+        int budgetChars = maxActivityTokens * CHARS_PER_TOKEN;
+        while (fields.size() > required && String.join(";", fields).length() > budgetChars) {
+            fields.remove(fields.size() - 1);
+            dropped++;
+        }
+
+        String prompt = INSTRUCTION_PREFIX + String.join(";", fields);
+        aiMetrics.recordPrompt(estimateTokens(prompt), dropped);
+        return prompt;
+    }
+
+    static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    private List<String> encodeMetrics(Map<String, Object> metrics) {
+        List<String> encoded = new ArrayList<>();
+        if (metrics == null || metrics.isEmpty()) {
+            return encoded;
+        }
+        List<String> seenKeys = new ArrayList<>();
+        KNOWN_METRICS.forEach((name, keyAndUnit) -> {
+            String value = scalar(metrics.get(name));
+            if (value != null && !seenKeys.contains(keyAndUnit[0])) {
+                seenKeys.add(keyAndUnit[0]);
+                encoded.add(keyAndUnit[0] + "=" + value + unit(metrics, name, keyAndUnit[1]));
+            }
+        });
+        new TreeMap<>(metrics).forEach((name, raw) -> {
+            String value = scalar(raw);
+            if (value != null && !KNOWN_METRICS.containsKey(name) && !isUnitOfKnownMetric(name)) {
+                encoded.add(name + "=" + value);
+            }
+        });
+        return encoded;
+    }
+
+    /** The client's unit for the metric if it sent one, else the unit implied by the metric, if any. */
+    private String unit(Map<String, Object> metrics, String name, String impliedUnit) {
+        String clientUnit = scalar(metrics.get(name + UNIT_SUFFIX));
+        return clientUnit != null ? clientUnit : impliedUnit;
+    }
+
+    private static boolean isUnitOfKnownMetric(String name) {
+        return name.endsWith(UNIT_SUFFIX)
+                && KNOWN_METRICS.containsKey(name.substring(0, name.length() - UNIT_SUFFIX.length()));
+    }
+
+    /**
+     * Returns a compact string for numbers, booleans and short strings; nested
+     * structures and blank values carry too little signal per token and are skipped.
+     */
+    private String scalar(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            return number == Math.rint(number) ? String.valueOf((long) number) : String.format(Locale.ROOT, "%.2f", number);
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            String trimmed = text.strip().replace(';', ',').replace('=', ':');
+            return trimmed.length() > MAX_VALUE_CHARS ? trimmed.substring(0, MAX_VALUE_CHARS) : trimmed;
+        }
+        return null;
+    }
+}
@@ -3,6 +3,7 @@ package com.fitness.aiservice.service;
 import com.fitness.aiservice.model.Recommendation;
 import com.fitness.aiservice.repository.RecommendationRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -17,6 +18,10 @@ public class RecommendationService {
         return recommendationRepository.findByUserId(userId);
     }
 
+    public List<Recommendation> getLatestUserRecommendations(String userId, int limit) {
+        return recommendationRepository.findByUserIdOrderByCreatedAtDesc(userId, PageRequest.of(0, limit));
+    }
+
     public Recommendation getActivityRecommendation(String activityId) {
         return recommendationRepository.findByActivityId(activityId)
                 .orElseThrow(() -> new RuntimeException("Activity not found: " + activityId));
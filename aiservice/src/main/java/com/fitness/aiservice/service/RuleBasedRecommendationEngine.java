@@ -0,0 +1,137 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import com.fitness.aiservice.model.Recommendation;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local recommendation engine that only looks at the activity type, duration,
+ * calories and a handful of well-known metrics. It never does I/O, so it can
+ * always produce an answer while the Gemini call is still in flight.
+ */
+@Component
+public class RuleBasedRecommendationEngine {
+
+    public static final String SOURCE = "RULES";
+
+    private static final int SHORT_SESSION_MINUTES = 20;
+    private static final int LONG_SESSION_MINUTES = 90;
+    private static final double LOW_INTENSITY_KCAL_PER_MIN = 4.0;
+    private static final double HIGH_INTENSITY_KCAL_PER_MIN = 10.0;
+    private static final int HIGH_HEART_RATE = 170;
+
+    public Recommendation recommend(Activity activity) {
+        ActivityType type = activity.getType() != null ? activity.getType() : ActivityType.OTHER;
+        int duration = activity.getDuration() != null ? activity.getDuration() : 0;
+        int calories = activity.getCaloriesBurned() != null ? activity.getCaloriesBurned() : 0;
+        double intensity = duration > 0 ? (double) calories / duration : 0;
+        Double heartRate = numericMetric(activity.getAdditionalMetrics(), "heartRate", "avgHeartRate", "averageHeartRate");
+
+        StringBuilder analysis = new StringBuilder();
+        analysis.append("Overall:")
+                .append(duration).append(" minute ").append(label(type)).append(" session")
+                .append(" at ").append(intensityLabel(intensity)).append(" intensity.")
+                .append("\n\n");
+        if (heartRate != null) {
+            analysis.append("HeartRate:Average heart rate of ").append(heartRate.intValue()).append(" bpm")
+                    .append(heartRate >= HIGH_HEART_RATE ? " is close to the upper training zone." : " is within a sustainable zone.")
+                    .append("\n\n");
+        }
+        analysis.append("CaloriesBurned:").append(calories).append(" kcal burned")
+                .append(duration > 0 ? String.format(" (%.1f kcal/min).", intensity) : ".");
+
+        List<String> improvements = new ArrayList<>();
+        if (duration > 0 && duration < SHORT_SESSION_MINUTES) {
+            improvements.add("Duration: Extend the session gradually towards " + SHORT_SESSION_MINUTES + "+ minutes");
+        }
+        if (duration > 0 && intensity < LOW_INTENSITY_KCAL_PER_MIN && isCardio(type)) {
+            improvements.add("Intensity: Add short higher-effort intervals to raise the training stimulus");
+        }
+        if (heartRate != null && heartRate >= HIGH_HEART_RATE) {
+            improvements.add("Heart Rate: Spend more time in lower zones to build aerobic base");
+        }
+        if (improvements.isEmpty()) {
+            improvements.add("Consistency: Keep the current routine and progress load by about 10% per week");
+        }
+
+        List<String> suggestions = new ArrayList<>();
+        suggestions.add(nextWorkout(type, duration, intensity));
+
+        List<String> safety = new ArrayList<>();
+        safety.add("Always warm up before exercise");
+        safety.add("Stay Hydrated");
+        if (duration >= LONG_SESSION_MINUTES || intensity >= HIGH_INTENSITY_KCAL_PER_MIN) {
+            safety.add("Plan a recovery day after this session");
+        }
+        safety.add("Listen to your body");
+
+        return Recommendation.builder()
+                .activityId(activity.getId())
+                .userId(activity.getUserId())
+                .type(type.toString())
+                .recommendation(analysis.toString().trim())
+                .improvements(improvements)
+                .suggestions(suggestions)
+                .safety(safety)
+                .source(SOURCE)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private String nextWorkout(ActivityType type, int duration, double intensity) {
+        if (intensity >= HIGH_INTENSITY_KCAL_PER_MIN || type == ActivityType.HIIT) {
+            return "Active Recovery: 20-30 minutes of easy walking, yoga or stretching";
+        }
+        return switch (type) {
+            case RUNNING, WALKING, CYCLING, SWIMMING, CARDIO ->
+                    "Interval Session: " + Math.max(duration, SHORT_SESSION_MINUTES) + " minutes alternating easy and hard efforts";
+            case WEIGHT_TRAINING -> "Mobility Work: 20 minutes of stretching for the muscle groups you trained";
+            case YOGA, STRETCHING -> "Light Cardio: 30 minutes of brisk walking or easy cycling";
+            default -> "Balanced Session: 30 minutes of moderate cardio followed by stretching";
+        };
+    }
+
+    private boolean isCardio(ActivityType type) {
+        return switch (type) {
+            case RUNNING, WALKING, CYCLING, SWIMMING, CARDIO, HIIT -> true;
+            default -> false;
+        };
+    }
+
+    private String intensityLabel(double kcalPerMinute) {
+        if (kcalPerMinute >= HIGH_INTENSITY_KCAL_PER_MIN) {
+            return "high";
+        }
+        return kcalPerMinute >= LOW_INTENSITY_KCAL_PER_MIN ? "moderate" : "low";
+    }
+
+    private String label(ActivityType type) {
+        return type.name().toLowerCase().replace('_', ' ');
+    }
+
+    private Double numericMetric(Map<String, Object> metrics, String... keys) {
+        if (metrics == null) {
+            return null;
+        }
+        for (String key : keys) {
+            Object value = metrics.get(key);
+            if (value instanceof Number number) {
+                return number.doubleValue();
+            }
+            if (value instanceof String text) {
+                try {
+                    return Double.parseDouble(text.trim());
+                } catch (NumberFormatException ignored) {
+                    // not a plain number, try the next key
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.fitness.aiservice.repository;
+
+import com.fitness.aiservice.model.Phrase;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.service.PhraseDictionary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecommendationPhraseCallbackTests {
+
+	private static final String HYDRATE = "Hydrate before and after the session.";
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final RecommendationPhraseCallback callback = new RecommendationPhraseCallback(
+			new PhraseDictionary(mongoTemplate, new SimpleMeterRegistry(), 100, 1));
+
+	RecommendationPhraseCallbackTests() {
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Phrase.class))
+				.thenReturn(mock(BulkOperations.class));
+	}
+
+	@Test
+	void savedListsAreStoredAsEntriesAndReadBackAsText() {
+		Recommendation recommendation = Recommendation.builder()
+				.safety(List.of(HYDRATE))
+				.improvements(List.of())
+				.build();
+		Document document = new Document("safety", List.of(HYDRATE)).append("improvements", List.of());
+
+		callback.onBeforeSave(recommendation, document, "recommendations");
+
+		assertThat(document).doesNotContainKeys("safety", "improvements");
+		assertThat(document.getList("safetyRefs", String.class)).containsExactly(ref(HYDRATE));
+		assertThat(recommendation.getSafety()).containsExactly(HYDRATE);
+
+		Recommendation read = callback.onAfterConvert(new Recommendation(), document, "recommendations");
+
+		assertThat(read.getSafety()).containsExactly(HYDRATE);
+		assertThat(read.getImprovements()).isEmpty();
+		assertThat(read.getSuggestions()).isNull();
+	}
+
+	@Test
+	void refsMissingFromTheCacheAreLoadedDuringConversion() {
+		String ref = ref(HYDRATE);
+		when(mongoTemplate.find(any(Query.class), eq(Phrase.class))).thenReturn(List.of(new Phrase(ref, HYDRATE)));
+		Document document = new Document("suggestionsRefs", List.of("~Easy 30 minute jog.", ref));
+
+		Recommendation read = callback.onAfterConvert(new Recommendation(), document, "recommendations");
+
+		assertThat(read.getSuggestions()).containsExactly("Easy 30 minute jog.", HYDRATE);
+	}
+
+	@Test
+	void documentsWithPlainTextAreLeftAsConverted() {
+		Recommendation converted = Recommendation.builder().safety(List.of(HYDRATE)).build();
+
+		Recommendation read = callback.onAfterConvert(converted,
+				new Document("safety", List.of(HYDRATE)), "recommendations");
+
+		assertThat(read.getSafety()).containsExactly(HYDRATE);
+	}
+
+	@Test
+	void emptyListsReadBackEmpty() {
+		Document document = new Document("safety", List.of());
+		callback.onBeforeSave(new Recommendation(), document, "recommendations");
+
+		assertThat(callback.onAfterConvert(new Recommendation(), document, "recommendations").getSafety()).isEmpty();
+	}
+
+	/** The stored ref format: first 64 bits of the SHA-256 of the text, base64url without padding. */
+	private static String ref(String phrase) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(phrase.getBytes(StandardCharsets.UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.repository.RecommendationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Gemini is a mock that answers when the test lets it, so each test decides
+ * whether the answer beats {@code gemini.deadline-ms}.
+ */
+class ActivityAIServiceTests {
+
+	private static final String GEMINI_RESPONSE = """
+			{"candidates":[{"content":{"parts":[{"text":"{\\"analysis\\":{\\"overall\\":\\"Good run.\\"},\
+			\\"improvements\\":[{\\"area\\":\\"Pace\\",\\"recommendation\\":\\"Negative splits.\\"}],\
+			\\"suggestions\\":[{\\"workout\\":\\"Tempo\\",\\"description\\":\\"20 minutes.\\"}],\
+			\\"safety\\":[\\"Hydrate\\"]}"}]}}]}
+			""";
+
+	private final GeminiService geminiService = mock(GeminiService.class);
+	private final RecommendationRepository repository = mock(RecommendationRepository.class);
+	private final PromptBuilder promptBuilder = mock(PromptBuilder.class);
+	private final ModelRouter modelRouter = mock(ModelRouter.class);
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ExecutorService geminiExecutor = Executors.newSingleThreadExecutor();
+	private final AtomicInteger ids = new AtomicInteger();
+	private final ActivityAIService service = new ActivityAIService(geminiService, new RuleBasedRecommendationEngine(),
+			repository, new AiMetrics(meterRegistry), mock(PayloadLogSampler.class), promptBuilder, modelRouter,
+			geminiExecutor);
+
+	ActivityAIServiceTests() {
+		ReflectionTestUtils.setField(service, "deadlineMs", 100L);
+		when(promptBuilder.build(any())).thenReturn("prompt");
+		when(modelRouter.route(any())).thenReturn(ModelRoute.FAST);
+		when(repository.save(any())).thenAnswer(invocation -> {
+			Recommendation recommendation = invocation.getArgument(0);
+			if (recommendation.getId() == null) {
+				recommendation.setId("r" + ids.incrementAndGet());
+			}
+			return recommendation;
+		});
+	}
+
+	@AfterEach
+	void stopExecutor() {
+		geminiExecutor.shutdownNow();
+	}
+
+	@Test
+	void answerWithinTheDeadlineIsStored() {
+		when(geminiService.getRecommendations(anyString(), eq(ModelRoute.FAST))).thenReturn(GEMINI_RESPONSE);
+
+		Recommendation result = service.generateRecommendation(activity());
+
+		assertThat(result.getSource()).isEqualTo(ActivityAIService.SOURCE);
+		assertThat(result.getImprovements()).containsExactly("Pace: Negative splits.");
+		verify(repository, times(1)).save(any());
+	}
+
+	@Test
+	void missedDeadlineStoresRulesAndThenReplacesThemInPlace() {
+		CountDownLatch release = new CountDownLatch(1);
+		when(geminiService.getRecommendations(anyString(), eq(ModelRoute.FAST))).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return GEMINI_RESPONSE;
+		});
+
+		Recommendation quick = service.generateRecommendation(activity());
+
+		assertThat(quick.getSource()).isEqualTo(RuleBasedRecommendationEngine.SOURCE);
+		assertThat(meterRegistry.counter("ai.recommendation.fallbacks", "reason", "deadline").count()).isEqualTo(1);
+
+		release.countDown();
+		ArgumentCaptor<Recommendation> saved = ArgumentCaptor.forClass(Recommendation.class);
+		verify(repository, timeout(2000).times(2)).save(saved.capture());
+		Recommendation late = saved.getAllValues().get(1);
+		assertThat(late.getSource()).isEqualTo(ActivityAIService.SOURCE);
+		assertThat(late.getId()).isEqualTo(quick.getId());
+	}
+
+	@Test
+	void lateAnswerThatCannotBeParsedLeavesTheRulesResult() {
+		CountDownLatch release = new CountDownLatch(1);
+		when(geminiService.getRecommendations(anyString(), eq(ModelRoute.FAST))).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return "not json";
+		});
+
+		Recommendation quick = service.generateRecommendation(activity());
+		release.countDown();
+
+		assertThat(quick.getSource()).isEqualTo(RuleBasedRecommendationEngine.SOURCE);
+		verify(repository, after(300).times(1)).save(any());
+	}
+
+	@Test
+	void lateFailureIsCounted() {
+		CountDownLatch release = new CountDownLatch(1);
+		when(geminiService.getRecommendations(anyString(), eq(ModelRoute.FAST))).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			throw new IllegalStateException("quota exceeded");
+		});
+
+		service.generateRecommendation(activity());
+		release.countDown();
+
+		verify(repository, after(300).times(1)).save(any());
+		assertThat(meterRegistry.counter("ai.recommendation.late.failures").count()).isEqualTo(1);
+	}
+
+	@Test
+	void geminiErrorBeforeTheDeadlineFallsBackToRules() {
+		when(geminiService.getRecommendations(anyString(), eq(ModelRoute.FAST)))
+				.thenThrow(new IllegalStateException("No Gemini capacity left on route FAST"));
+
+		Recommendation result = service.generateRecommendation(activity());
+
+		assertThat(result.getSource()).isEqualTo(RuleBasedRecommendationEngine.SOURCE);
+		assertThat(meterRegistry.counter("ai.recommendation.fallbacks", "reason", "gemini_error").count()).isEqualTo(1);
+	}
+
+	@Test
+	void templateRouteNeverCallsGemini() {
+		when(modelRouter.route(any())).thenReturn(ModelRoute.TEMPLATE);
+
+		Recommendation result = service.generateRecommendation(activity());
+
+		assertThat(result.getSource()).isEqualTo(RuleBasedRecommendationEngine.SOURCE);
+		verify(geminiService, never()).getRecommendations(anyString(), any());
+	}
+
+	private static Activity activity() {
+		return Activity.builder()
+				.id("a1")
+				.userId("u1")
+				.type(ActivityType.RUNNING)
+				.duration(40)
+				.caloriesBurned(400)
+				.createdAt(LocalDateTime.now())
+				.additionalMetrics(Map.of("heartRate", 150, "distance", 8.1))
+				.build();
+	}
+}
@@ -0,0 +1,100 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ActivityMessageListenerTests {
+
+	private static final String BACKLOG_TOPIC = "activity-events-backlog";
+
+	private final PriorityLaneDispatcher dispatcher = mock(PriorityLaneDispatcher.class);
+	@SuppressWarnings("unchecked")
+	private final KafkaTemplate<String, Activity> kafkaTemplate = mock(KafkaTemplate.class);
+	private final Acknowledgment acknowledgment = mock(Acknowledgment.class);
+	private final ActivityMessageListener listener = new ActivityMessageListener(dispatcher,
+			new AiMetrics(new SimpleMeterRegistry()), kafkaTemplate);
+	private final Activity activity = Activity.builder().id("a1").userId("u1").build();
+
+	ActivityMessageListenerTests() {
+		ReflectionTestUtils.setField(listener, "backlogTopic", BACKLOG_TOPIC);
+		ReflectionTestUtils.setField(listener, "forwardTimeout", Duration.ofSeconds(1));
+	}
+
+	@Test
+	void backlogEventIsMovedToTheBacklogTopicInsteadOfQueued() throws Exception {
+		when(dispatcher.classify(any(), any(), any())).thenReturn(PriorityLane.BACKLOG);
+		when(kafkaTemplate.send(BACKLOG_TOPIC, "u1", activity)).thenReturn(CompletableFuture.completedFuture(null));
+
+		listener.processActivity(activity, 0L, null, acknowledgment);
+
+		verify(acknowledgment).acknowledge();
+		verify(dispatcher, never()).dispatch(any(), any());
+	}
+
+	@Test
+	void failedMoveIsThrownSoTheRecordIsRedelivered() {
+		when(dispatcher.classify(any(), any(), any())).thenReturn(PriorityLane.BACKLOG);
+		when(kafkaTemplate.send(BACKLOG_TOPIC, "u1", activity))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+		assertThatThrownBy(() -> listener.processActivity(activity, 0L, null, acknowledgment))
+				.isInstanceOf(ExecutionException.class);
+		verify(acknowledgment, never()).acknowledge();
+	}
+
+	@Test
+	void liveEventIsAcknowledgedOnceTheLaneIsDone() throws Exception {
+		CompletableFuture<Boolean> done = new CompletableFuture<>();
+		when(dispatcher.classify(any(), any(), any())).thenReturn(PriorityLane.LIVE);
+		when(dispatcher.dispatch(activity, PriorityLane.LIVE)).thenReturn(done);
+
+		listener.processActivity(activity, System.currentTimeMillis(), null, acknowledgment);
+		verify(acknowledgment, never()).acknowledge();
+
+		done.complete(false);
+		verify(acknowledgment).acknowledge();
+	}
+
+	@Test
+	void eventThatWasNeverQueuedIsMovedAndAcknowledged() throws Exception {
+		when(dispatcher.classify(any(), any(), any())).thenReturn(PriorityLane.LIVE);
+		when(dispatcher.dispatch(activity, PriorityLane.LIVE))
+				.thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("lane shut down")));
+		when(kafkaTemplate.send(BACKLOG_TOPIC, "u1", activity)).thenReturn(CompletableFuture.completedFuture(null));
+
+		listener.processActivity(activity, System.currentTimeMillis(), null, acknowledgment);
+
+		verify(kafkaTemplate).send(BACKLOG_TOPIC, "u1", activity);
+		verify(acknowledgment).acknowledge();
+	}
+
+	@Test
+	void eventIsAcknowledgedEvenWhenItCannotBeMoved() {
+		when(dispatcher.dispatch(activity, PriorityLane.BACKLOG))
+				.thenReturn(CompletableFuture.failedFuture(new InterruptedException()));
+		when(kafkaTemplate.send(anyString(), anyString(), eq(activity)))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+		listener.processBacklog(activity, acknowledgment);
+
+		verify(acknowledgment).acknowledge();
+	}
+}
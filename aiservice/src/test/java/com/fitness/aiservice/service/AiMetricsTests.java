@@ -0,0 +1,66 @@
+package com.fitness.aiservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AiMetricsTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AiMetrics aiMetrics = new AiMetrics(meterRegistry);
+
+	@Test
+	void tokenCountsAreRecordedByType() throws Exception {
+		aiMetrics.recordTokenUsage(new ObjectMapper().readTree(
+				"{\"promptTokenCount\":120,\"candidatesTokenCount\":300,\"totalTokenCount\":420}"));
+
+		assertThat(meterRegistry.get("ai.gemini.tokens").tag("type", "prompt").summary().totalAmount()).isEqualTo(120);
+		assertThat(meterRegistry.get("ai.gemini.tokens").tag("type", "total").summary().totalAmount()).isEqualTo(420);
+		// Gemini only reports thoughts for thinking models
+		assertThat(meterRegistry.find("ai.gemini.tokens").tag("type", "thoughts").summary()).isNull();
+	}
+
+	@Test
+	void missingUsageMetadataRecordsNothing() throws Exception {
+		aiMetrics.recordTokenUsage(new ObjectMapper().readTree("{}").path("usageMetadata"));
+
+		assertThat(meterRegistry.find("ai.gemini.tokens").summaries()).isEmpty();
+	}
+
+	@Test
+	void freshnessIsTimeSinceTheActivityWasCreated() {
+		aiMetrics.recordFreshness(LocalDateTime.now().minusSeconds(5), "GEMINI", PriorityLane.LIVE);
+		aiMetrics.recordFreshness(LocalDateTime.now().plusSeconds(5), "RULES", PriorityLane.LIVE);
+		aiMetrics.recordFreshness(null, "RULES", PriorityLane.LIVE);
+
+		assertThat(meterRegistry.get("ai.recommendation.freshness").tag("source", "GEMINI").timer()
+				.totalTime(TimeUnit.SECONDS)).isBetween(5.0, 6.0);
+		// a clock ahead of ours counts as zero rather than negative
+		assertThat(meterRegistry.get("ai.recommendation.freshness").tag("source", "RULES").timer()
+				.totalTime(TimeUnit.SECONDS)).isZero();
+		assertThat(meterRegistry.get("ai.recommendation.freshness").tag("source", "RULES").timer().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void payloadsAreOnlySampledAtDebug() {
+		PayloadLogSampler sampler = new PayloadLogSampler();
+		ReflectionTestUtils.setField(sampler, "sampleRate", 1.0);
+		Logger logger = mock(Logger.class);
+
+		assertThat(sampler.shouldLog(logger)).isFalse();
+		when(logger.isDebugEnabled()).thenReturn(true);
+		assertThat(sampler.shouldLog(logger)).isTrue();
+		ReflectionTestUtils.setField(sampler, "sampleRate", 0.0);
+		assertThat(sampler.shouldLog(logger)).isFalse();
+	}
+}
@@ -0,0 +1,219 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.dto.BackfillRequest;
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.BackfillJob;
+import com.fitness.aiservice.model.BackfillSource;
+import com.fitness.aiservice.model.BackfillStatus;
+import com.fitness.aiservice.repository.BackfillJobRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Jobs run on the calling thread and the BACKLOG lane is a mock, so a job has
+ * finished and saved its last checkpoint by the time start or resume returns.
+ */
+class BackfillServiceTests {
+
+	private static final String TOPIC = "activity-events";
+
+	@TempDir
+	Path exportDir;
+
+	private final BackfillJobRepository repository = mock(BackfillJobRepository.class);
+	private final PriorityLaneDispatcher dispatcher = mock(PriorityLaneDispatcher.class);
+	private final ConsumerFactory<?, ?> consumerFactory = mock(ConsumerFactory.class);
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final BackfillService service = new BackfillService(repository, dispatcher, consumerFactory, mongoTemplate,
+			Runnable::run);
+
+	BackfillServiceTests() {
+		ReflectionTestUtils.setField(service, "topicName", TOPIC);
+		ReflectionTestUtils.setField(service, "defaultChunkSize", 2);
+		ReflectionTestUtils.setField(service, "liveBackoff", Duration.ofMillis(10));
+		when(repository.save(any())).thenAnswer(invocation -> {
+			BackfillJob job = invocation.getArgument(0);
+			if (job.getId() == null) {
+				job.setId("job-1");
+			}
+			return job;
+		});
+		when(dispatcher.dispatch(any(), eq(PriorityLane.BACKLOG))).thenReturn(CompletableFuture.completedFuture(true));
+
+		MongoConverter converter = mock(MongoConverter.class);
+		when(mongoTemplate.getConverter()).thenReturn(converter);
+		when(converter.read(eq(Activity.class), any(Bson.class))).thenAnswer(invocation ->
+				Activity.builder().id(((Document) invocation.getArgument(1)).getString("_id")).build());
+	}
+
+	@Test
+	void exportIsProcessedInCheckpointedChunks() throws IOException {
+		writeExport(5);
+
+		BackfillJob job = service.start(exportRequest("activities.json"));
+
+		assertThat(job.getStatus()).isEqualTo(BackfillStatus.COMPLETED);
+		assertThat(job.getTotal()).isEqualTo(5);
+		assertThat(job.getProcessed()).isEqualTo(5);
+		assertThat(job.getLineCheckpoint()).isEqualTo(5);
+		assertThat(dispatchedIds()).containsExactly("a1", "a2", "a3", "a4", "a5");
+	}
+
+	@Test
+	void resumedExportStartsAtTheCheckpoint() throws IOException {
+		writeExport(5);
+		BackfillJob stopped = BackfillJob.builder()
+				.id("job-1")
+				.source(BackfillSource.MONGO_EXPORT)
+				.status(BackfillStatus.FAILED)
+				.chunkSize(2)
+				.exportPath("activities.json")
+				.lineCheckpoint(4)
+				.total(5)
+				.processed(4)
+				.build();
+		when(repository.findById("job-1")).thenReturn(Optional.of(stopped));
+
+		BackfillJob job = service.resume("job-1");
+
+		assertThat(job.getStatus()).isEqualTo(BackfillStatus.COMPLETED);
+		assertThat(job.getProcessed()).isEqualTo(5);
+		assertThat(dispatchedIds()).containsExactly("a5");
+	}
+
+	@Test
+	void failedActivitiesAreCountedAndTheJobStillCompletes() throws IOException {
+		writeExport(3);
+		when(dispatcher.dispatch(any(), eq(PriorityLane.BACKLOG)))
+				.thenReturn(CompletableFuture.completedFuture(true))
+				.thenReturn(CompletableFuture.completedFuture(false))
+				.thenReturn(CompletableFuture.failedFuture(new IllegalStateException("lane shut down")));
+
+		BackfillJob job = service.start(exportRequest("activities.json"));
+
+		assertThat(job.getStatus()).isEqualTo(BackfillStatus.COMPLETED);
+		assertThat(job.getProcessed()).isEqualTo(1);
+		assertThat(job.getFailed()).isEqualTo(2);
+	}
+
+	@Test
+	void exportPathMustStayInsideTheExportDirectory() throws IOException {
+		writeExport(1);
+		Path outside = Files.writeString(exportDir.getParent().resolve("secret-" + System.nanoTime() + ".json"), "{}");
+		try {
+			for (String path : List.of("../" + outside.getFileName(), outside.toString(), "missing.json", "")) {
+				assertThatThrownBy(() -> service.start(exportRequest(path)))
+						.isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+							assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+							assertThat(e.getReason())
+									.isEqualTo("exportPath must name a readable file in the backfill export directory");
+						});
+			}
+			verify(repository, never()).save(any());
+		} finally {
+			Files.deleteIfExists(outside);
+		}
+	}
+
+	@Test
+	void unknownJobIsNotFound() {
+		when(repository.findById("nope")).thenReturn(Optional.empty());
+
+		assertThatThrownBy(() -> service.getJob("nope"))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+	}
+
+	@Test
+	void replayStopsAtTheEndOffsetsAndResumesFromTheCheckpoint() {
+		TopicPartition partition = new TopicPartition(TOPIC, 0);
+		BackfillJob stopped = BackfillJob.builder()
+				.id("job-1")
+				.source(BackfillSource.KAFKA_REPLAY)
+				.status(BackfillStatus.FAILED)
+				.chunkSize(2)
+				.offsetCheckpoints(new HashMap<>(Map.of("0", 2L)))
+				.endOffsets(new HashMap<>(Map.of("0", 4L)))
+				.total(4)
+				.processed(2)
+				.build();
+		when(repository.findById("job-1")).thenReturn(Optional.of(stopped));
+		MockConsumer<String, Object> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+		consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+		consumer.updateBeginningOffsets(Map.of(partition, 0L));
+		consumer.updateEndOffsets(Map.of(partition, 6L));
+		// six records on the topic now, but the job only covers the four that existed when it started
+		consumer.schedulePollTask(() -> IntStream.range(0, 6).forEach(offset -> consumer.addRecord(
+				new ConsumerRecord<>(TOPIC, 0, offset, "u1", Activity.builder().id("a" + offset).build()))));
+		doReturn(consumer).when(consumerFactory)
+				.createConsumer(anyString(), isNull(), isNull(), any(Properties.class));
+
+		BackfillJob job = service.resume("job-1");
+
+		assertThat(job.getStatus()).isEqualTo(BackfillStatus.COMPLETED);
+		assertThat(job.getOffsetCheckpoints()).containsEntry("0", 4L);
+		assertThat(job.getProcessed()).isEqualTo(4);
+		assertThat(dispatchedIds()).containsExactly("a2", "a3");
+	}
+
+	private List<String> dispatchedIds() {
+		ArgumentCaptor<Activity> dispatched = ArgumentCaptor.forClass(Activity.class);
+		verify(dispatcher, atLeastOnce()).dispatch(dispatched.capture(), eq(PriorityLane.BACKLOG));
+		return dispatched.getAllValues().stream().map(Activity::getId).toList();
+	}
+
+	private void writeExport(int lines) throws IOException {
+		ReflectionTestUtils.setField(service, "exportDir", exportDir.toString());
+		StringBuilder export = new StringBuilder();
+		for (int i = 1; i <= lines; i++) {
+			export.append("{\"_id\":\"a").append(i).append("\",\"userId\":\"u1\"}\n");
+		}
+		Files.writeString(exportDir.resolve("activities.json"), export);
+	}
+
+	private static BackfillRequest exportRequest(String path) {
+		BackfillRequest request = new BackfillRequest();
+		request.setSource(BackfillSource.MONGO_EXPORT);
+		request.setExportPath(path);
+		return request;
+	}
+}
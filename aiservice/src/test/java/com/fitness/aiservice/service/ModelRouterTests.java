@@ -0,0 +1,89 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelRouterTests {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ModelRouter router = new ModelRouter(meterRegistry);
+
+	ModelRouterTests() {
+		ReflectionTestUtils.setField(router, "enabled", true);
+		ReflectionTestUtils.setField(router, "templateMaxScore", 1);
+		ReflectionTestUtils.setField(router, "fastMaxScore", 4);
+	}
+
+	@Test
+	void shortRunWithoutMetricsGetsTheTemplate() {
+		Activity run = activity(ActivityType.RUNNING, 25, Map.of());
+
+		assertThat(router.score(run)).isEqualTo(1);
+		assertThat(router.route(run)).isEqualTo(ModelRoute.TEMPLATE);
+	}
+
+	@Test
+	void scoresAtTheThresholdsStayOnTheCheaperRoute() {
+		// 1 for the type, 1 for 30 minutes
+		assertThat(router.route(activity(ActivityType.RUNNING, 30, Map.of()))).isEqualTo(ModelRoute.FAST);
+		// 1 + 1 + 2 metrics = 4
+		assertThat(router.route(activity(ActivityType.RUNNING, 30, Map.of("heartRate", 150, "distance", 5.2))))
+				.isEqualTo(ModelRoute.FAST);
+		// 1 + 1 + 3 metrics = 5
+		assertThat(router.route(activity(ActivityType.RUNNING, 30,
+				Map.of("heartRate", 150, "distance", 5.2, "cadence", 170)))).isEqualTo(ModelRoute.RICH);
+	}
+
+	@Test
+	void typeWeightsShiftTheScore() {
+		assertThat(router.score(activity(ActivityType.YOGA, 59, Map.of()))).isEqualTo(1);
+		assertThat(router.score(activity(ActivityType.HIIT, 29, Map.of()))).isEqualTo(2);
+		assertThat(router.score(activity(null, null, null))).isEqualTo(1);
+	}
+
+	@Test
+	void durationAndMetricPointsAreCapped() {
+		Map<String, Object> metrics = new HashMap<>();
+		for (int i = 0; i < 8; i++) {
+			metrics.put("m" + i, i);
+		}
+		metrics.put("blank", " ");
+		metrics.put("nested", Map.of("lap", 1));
+
+		assertThat(router.score(activity(ActivityType.WALKING, 300, metrics))).isEqualTo(3 + 5);
+	}
+
+	@Test
+	void thresholdsComeFromConfiguration() {
+		ReflectionTestUtils.setField(router, "templateMaxScore", 0);
+		ReflectionTestUtils.setField(router, "fastMaxScore", 1);
+
+		assertThat(router.route(activity(ActivityType.RUNNING, 25, Map.of()))).isEqualTo(ModelRoute.FAST);
+		assertThat(router.route(activity(ActivityType.RUNNING, 30, Map.of()))).isEqualTo(ModelRoute.RICH);
+	}
+
+	@Test
+	void disabledRoutingAlwaysUsesTheRichModel() {
+		ReflectionTestUtils.setField(router, "enabled", false);
+
+		assertThat(router.route(activity(ActivityType.STRETCHING, 5, Map.of()))).isEqualTo(ModelRoute.RICH);
+		assertThat(meterRegistry.counter("ai.routing.decisions", "route", "RICH").count()).isEqualTo(1);
+	}
+
+	private static Activity activity(ActivityType type, Integer duration, Map<String, Object> metrics) {
+		return Activity.builder()
+				.type(type)
+				.duration(duration)
+				.additionalMetrics(metrics)
+				.build();
+	}
+}
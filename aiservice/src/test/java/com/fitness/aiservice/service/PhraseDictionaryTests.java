@@ -0,0 +1,93 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Phrase;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PhraseDictionaryTests {
+
+	private static final String HYDRATE = "Hydrate before and after the session.";
+	private static final String WARM_UP = "Warm up for ten minutes.";
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final BulkOperations bulk = mock(BulkOperations.class);
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	PhraseDictionaryTests() {
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Phrase.class)).thenReturn(bulk);
+	}
+
+	@Test
+	void phrasesAreInlineUntilTheyRecur() {
+		PhraseDictionary dictionary = new PhraseDictionary(mongoTemplate, meterRegistry, 100, 3);
+
+		assertThat(dictionary.intern(List.of(HYDRATE))).containsExactly("~" + HYDRATE);
+		assertThat(dictionary.intern(List.of(HYDRATE))).containsExactly("~" + HYDRATE);
+		verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Phrase.class));
+
+		assertThat(dictionary.intern(List.of(HYDRATE, WARM_UP)))
+				.containsExactly(PhraseDictionary.ref(HYDRATE), "~" + WARM_UP);
+		verify(bulk, times(1)).upsert(any(Query.class), any(Update.class));
+		verify(bulk, times(1)).execute();
+	}
+
+	@Test
+	void promotedPhrasesAreServedFromTheCache() {
+		PhraseDictionary dictionary = new PhraseDictionary(mongoTemplate, meterRegistry, 100, 1);
+		dictionary.intern(List.of(HYDRATE));
+
+		assertThat(dictionary.intern(List.of(HYDRATE))).containsExactly(PhraseDictionary.ref(HYDRATE));
+		Map<String, String> resolved = dictionary.resolve(List.of(PhraseDictionary.ref(HYDRATE)));
+
+		assertThat(resolved).containsEntry(PhraseDictionary.ref(HYDRATE), HYDRATE);
+		verify(bulk, times(1)).execute();
+		verify(mongoTemplate, never()).find(any(Query.class), eq(Phrase.class));
+		assertThat(meterRegistry.counter("ai.phrases.cache", "result", "hit").count()).isEqualTo(2);
+	}
+
+	@Test
+	void sightingsAreForgottenOnceTheyLeaveTheLru() {
+		PhraseDictionary dictionary = new PhraseDictionary(mongoTemplate, meterRegistry, 2, 2);
+
+		dictionary.intern(List.of(HYDRATE));
+		dictionary.intern(List.of("Stretch your calves.", "Sleep eight hours."));
+
+		assertThat(dictionary.intern(List.of(HYDRATE))).containsExactly("~" + HYDRATE);
+		verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Phrase.class));
+	}
+
+	@Test
+	void uncachedRefsAreLookedUpInOneQuery() {
+		PhraseDictionary dictionary = new PhraseDictionary(mongoTemplate, meterRegistry, 100, 3);
+		String hydrate = PhraseDictionary.ref(HYDRATE);
+		String warmUp = PhraseDictionary.ref(WARM_UP);
+		when(mongoTemplate.find(any(Query.class), eq(Phrase.class)))
+				.thenReturn(List.of(new Phrase(hydrate, HYDRATE), new Phrase(warmUp, WARM_UP)));
+		List<String> entries = List.of(hydrate, "~Easy pace.", warmUp, hydrate, "missing-ref");
+
+		Map<String, String> resolved = dictionary.resolve(entries);
+
+		verify(mongoTemplate, times(1)).find(any(Query.class), eq(Phrase.class));
+		assertThat(dictionary.expand(entries, resolved)).containsExactly(HYDRATE, "Easy pace.", WARM_UP, HYDRATE);
+
+		dictionary.resolve(List.of(hydrate, warmUp));
+		verify(mongoTemplate, times(1)).find(any(Query.class), eq(Phrase.class));
+	}
+}
@@ -0,0 +1,103 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PriorityLaneDispatcherTests {
+
+	private final ActivityAIService activityAIService = mock(ActivityAIService.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final PriorityLaneDispatcher dispatcher = new PriorityLaneDispatcher(activityAIService, meterRegistry,
+			new AiMetrics(meterRegistry), ObservationRegistry.NOOP);
+
+	PriorityLaneDispatcherTests() {
+		ReflectionTestUtils.setField(dispatcher, "backlogAgeThreshold", Duration.ofMinutes(5));
+		ReflectionTestUtils.setField(dispatcher, "liveConcurrency", 1);
+		ReflectionTestUtils.setField(dispatcher, "liveQueueCapacity", 1);
+		ReflectionTestUtils.setField(dispatcher, "backlogConcurrency", 1);
+		ReflectionTestUtils.setField(dispatcher, "backlogQueueCapacity", 1);
+		dispatcher.init();
+	}
+
+	@AfterEach
+	void shutdown() {
+		dispatcher.shutdown();
+	}
+
+	@Test
+	void recentEventsAreLive() {
+		assertThat(dispatcher.classify(activity(), Instant.now().minusSeconds(30), null)).isEqualTo(PriorityLane.LIVE);
+		assertThat(dispatcher.classify(activity(), null, null)).isEqualTo(PriorityLane.LIVE);
+		assertThat(dispatcher.classify(activity(), Instant.now(), "mobile-app")).isEqualTo(PriorityLane.LIVE);
+	}
+
+	@Test
+	void staleAndBulkEventsAreBacklog() {
+		assertThat(dispatcher.classify(activity(), Instant.now().minus(Duration.ofMinutes(6)), null))
+				.isEqualTo(PriorityLane.BACKLOG);
+		assertThat(dispatcher.classify(activity(), Instant.now(), "BULK-IMPORT")).isEqualTo(PriorityLane.BACKLOG);
+	}
+
+	@Test
+	void dispatchCompletesOnceTheRecommendationIsStored() throws Exception {
+		CompletableFuture<Boolean> done = dispatcher.dispatch(activity(), PriorityLane.LIVE);
+
+		assertThat(done.get(2, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void failedProcessingCompletesWithFalse() throws Exception {
+		when(activityAIService.generateRecommendation(any(), eq(PriorityLane.BACKLOG)))
+				.thenThrow(new IllegalStateException("mongo down"));
+
+		CompletableFuture<Boolean> done = dispatcher.dispatch(activity(), PriorityLane.BACKLOG);
+
+		assertThat(done.get(2, TimeUnit.SECONDS)).isFalse();
+	}
+
+	@Test
+	void busyBacklogLaneDoesNotHoldUpTheLiveLane() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(activityAIService.generateRecommendation(any(), eq(PriorityLane.BACKLOG))).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return null;
+		});
+		// one worker busy and one queued: the backlog lane is full
+		dispatcher.dispatch(activity(), PriorityLane.BACKLOG);
+		dispatcher.dispatch(activity(), PriorityLane.BACKLOG);
+
+		assertThat(dispatcher.dispatch(activity(), PriorityLane.LIVE).get(2, TimeUnit.SECONDS)).isTrue();
+		release.countDown();
+	}
+
+	@Test
+	void dispatchAfterShutdownCompletesExceptionally() {
+		dispatcher.shutdown();
+
+		CompletableFuture<Boolean> done = dispatcher.dispatch(activity(), PriorityLane.LIVE);
+
+		assertThat(done).isCompletedExceptionally();
+		assertThat(done.exceptionNow()).isInstanceOf(RejectedExecutionException.class);
+	}
+
+	private static Activity activity() {
+		return Activity.builder().id("a1").userId("u1").build();
+	}
+}
@@ -0,0 +1,83 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromptBuilderTests {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final PromptBuilder promptBuilder = new PromptBuilder(new AiMetrics(meterRegistry));
+
+	@Test
+	void everythingFitsTheDefaultBudget() {
+		budget(120);
+
+		String prompt = promptBuilder.build(activity());
+
+		assertThat(prompt).startsWith(PromptBuilder.INSTRUCTION_PREFIX);
+		assertThat(activityLine(prompt))
+				.isEqualTo("type=RUNNING;dur=45min;kcal=420;dist=8.10km;hr=152bpm;cad=170spm;notes=easy");
+		assertThat(meterRegistry.find("ai.prompt.fields.dropped").counter()).isNull();
+		assertThat(meterRegistry.summary("ai.prompt.tokens.estimated").totalAmount())
+				.isEqualTo(PromptBuilder.estimateTokens(prompt));
+	}
+
+	@Test
+	void leastRelevantMetricsAreDroppedFirst() {
+		// 44 chars: room for the required fields and distance, not heart rate
+		budget(11);
+
+		String prompt = promptBuilder.build(activity());
+
+		assertThat(activityLine(prompt)).isEqualTo("type=RUNNING;dur=45min;kcal=420;dist=8.10km");
+		assertThat(meterRegistry.counter("ai.prompt.fields.dropped").count()).isEqualTo(3);
+	}
+
+	@Test
+	void requiredFieldsAreKeptWhateverTheBudget() {
+		budget(0);
+
+		String prompt = promptBuilder.build(activity());
+
+		assertThat(activityLine(prompt)).isEqualTo("type=RUNNING;dur=45min;kcal=420");
+		assertThat(meterRegistry.counter("ai.prompt.fields.dropped").count()).isEqualTo(4);
+	}
+
+	@Test
+	void tokensAreEstimatedAtFourCharsRoundedUp() {
+		assertThat(PromptBuilder.estimateTokens("")).isZero();
+		assertThat(PromptBuilder.estimateTokens("abcd")).isEqualTo(1);
+		assertThat(PromptBuilder.estimateTokens("abcde")).isEqualTo(2);
+	}
+
+	private void budget(int tokens) {
+		ReflectionTestUtils.setField(promptBuilder, "maxActivityTokens", tokens);
+	}
+
+	private static String activityLine(String prompt) {
+		return prompt.substring(PromptBuilder.INSTRUCTION_PREFIX.length());
+	}
+
+	private static Activity activity() {
+		return Activity.builder()
+				.type(ActivityType.RUNNING)
+				.duration(45)
+				.caloriesBurned(420)
+				.additionalMetrics(Map.of(
+						"heartRate", 152,
+						"distance", 8.1,
+						"distanceUnit", "km",
+						"cadence", 170,
+						"notes", "easy",
+						"splits", Map.of("1", 300)))
+				.build();
+	}
+}
@@ -0,0 +1,90 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import com.fitness.aiservice.model.Recommendation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleBasedRecommendationEngineTests {
+
+	private final RuleBasedRecommendationEngine engine = new RuleBasedRecommendationEngine();
+
+	@Test
+	void shortEasyRunAsksForMoreDurationAndIntensity() {
+		Recommendation recommendation = engine.recommend(activity(ActivityType.RUNNING, 15, 45, Map.of()));
+
+		assertThat(recommendation.getSource()).isEqualTo(RuleBasedRecommendationEngine.SOURCE);
+		assertThat(recommendation.getRecommendation())
+				.startsWith("Overall:15 minute running session at low intensity.")
+				.contains("CaloriesBurned:45 kcal burned");
+		assertThat(recommendation.getImprovements())
+				.anyMatch(improvement -> improvement.startsWith("Duration:"))
+				.anyMatch(improvement -> improvement.startsWith("Intensity:"));
+		assertThat(recommendation.getSuggestions()).containsExactly(
+				"Interval Session: 20 minutes alternating easy and hard efforts");
+	}
+
+	@Test
+	void highHeartRateIsFlaggedWhetherTheMetricIsANumberOrText() {
+		Recommendation numeric = engine.recommend(activity(ActivityType.CYCLING, 60, 480, Map.of("heartRate", 175)));
+		Recommendation text = engine.recommend(activity(ActivityType.CYCLING, 60, 480, Map.of("avgHeartRate", " 175 ")));
+
+		for (Recommendation recommendation : new Recommendation[]{numeric, text}) {
+			assertThat(recommendation.getRecommendation())
+					.contains("HeartRate:Average heart rate of 175 bpm is close to the upper training zone.");
+			assertThat(recommendation.getImprovements()).containsExactly(
+					"Heart Rate: Spend more time in lower zones to build aerobic base");
+		}
+	}
+
+	@Test
+	void hardOrLongSessionsGetRecoveryAdvice() {
+		Recommendation hiit = engine.recommend(activity(ActivityType.HIIT, 30, 200, Map.of()));
+		Recommendation longRide = engine.recommend(activity(ActivityType.CYCLING, 120, 900, Map.of()));
+
+		assertThat(hiit.getSuggestions()).containsExactly(
+				"Active Recovery: 20-30 minutes of easy walking, yoga or stretching");
+		assertThat(longRide.getSafety()).contains("Plan a recovery day after this session");
+		assertThat(engine.recommend(activity(ActivityType.YOGA, 45, 150, Map.of())).getSafety())
+				.doesNotContain("Plan a recovery day after this session");
+	}
+
+	@Test
+	void steadySessionKeepsTheRoutine() {
+		Recommendation recommendation = engine.recommend(activity(ActivityType.WEIGHT_TRAINING, 45, 270, Map.of()));
+
+		assertThat(recommendation.getImprovements()).containsExactly(
+				"Consistency: Keep the current routine and progress load by about 10% per week");
+		assertThat(recommendation.getSuggestions()).containsExactly(
+				"Mobility Work: 20 minutes of stretching for the muscle groups you trained");
+	}
+
+	@Test
+	void missingFieldsStillProduceARecommendation() {
+		Activity activity = new Activity();
+		activity.setId("a1");
+
+		Recommendation recommendation = engine.recommend(activity);
+
+		assertThat(recommendation.getActivityId()).isEqualTo("a1");
+		assertThat(recommendation.getType()).isEqualTo("OTHER");
+		assertThat(recommendation.getRecommendation()).contains("CaloriesBurned:0 kcal burned.");
+		assertThat(recommendation.getImprovements()).isNotEmpty();
+		assertThat(recommendation.getSafety()).isNotEmpty();
+	}
+
+	private static Activity activity(ActivityType type, int duration, int calories, Map<String, Object> metrics) {
+		return Activity.builder()
+				.id("a1")
+				.userId("u1")
+				.type(type)
+				.duration(duration)
+				.caloriesBurned(calories)
+				.additionalMetrics(metrics)
+				.build();
+	}
+}
@@ -0,0 +1,325 @@
+package com.fitness.events;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of {@link ActivityEvent}.
+ * <p>
+ * A payload starts with {@link #MAGIC} and a schema version byte, followed by
+ * tagged fields in the protobuf style: each field is a varint key
+ * {@code (fieldNumber << 3) | wireType} and a value of that wire type. Absent
+ * fields are simply not written, and decoders skip field numbers they do not
+ * know, so fields can be added without a version bump. Field numbers must never
+ * be reused; bump {@link #VERSION} only for changes old decoders cannot skip.
+ * <p>
+ * Timestamps are epoch milliseconds in UTC, the activity type is its
+ * {@link ActivityEventType} ordinal and each metric keeps its scalar type.
+ */
+public final class ActivityEventCodec {
+
+    public static final byte MAGIC = (byte) 0xAE;
+    public static final byte VERSION = 1;
+
+    static final int WIRE_VARINT = 0;
+    static final int WIRE_FIXED64 = 1;
+    static final int WIRE_LEN = 2;
+
+    // Event fields
+    private static final int FIELD_ID = 1;
+    private static final int FIELD_USER_ID = 2;
+    private static final int FIELD_TYPE = 3;
+    private static final int FIELD_DURATION = 4;
+    private static final int FIELD_CALORIES = 5;
+    private static final int FIELD_START_TIME = 6;
+    private static final int FIELD_CREATED_AT = 7;
+    private static final int FIELD_UPDATED_AT = 8;
+    private static final int FIELD_METRIC = 9;
+
+    // Metric entry fields; exactly one value field is present per entry
+    private static final int METRIC_KEY = 1;
+    private static final int METRIC_LONG = 2;
+    private static final int METRIC_DOUBLE = 3;
+    private static final int METRIC_BOOLEAN = 4;
+    private static final int METRIC_STRING = 5;
+
+    private static final ActivityEventType[] TYPES = ActivityEventType.values();
+
+    private ActivityEventCodec() {
+    }
+
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length >= 2 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(ActivityEvent event) {
+        Writer out = new Writer(128);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeString(FIELD_ID, event.getId());
+        out.writeString(FIELD_USER_ID, event.getUserId());
+        if (event.getType() != null) {
+            out.writeVarintField(FIELD_TYPE, event.getType().ordinal());
+        }
+        if (event.getDuration() != null) {
+            out.writeVarintField(FIELD_DURATION, zigZag(event.getDuration()));
+        }
+        if (event.getCaloriesBurned() != null) {
+            out.writeVarintField(FIELD_CALORIES, zigZag(event.getCaloriesBurned()));
+        }
+        out.writeTimestamp(FIELD_START_TIME, event.getStartTime());
+        out.writeTimestamp(FIELD_CREATED_AT, event.getCreatedAt());
+        out.writeTimestamp(FIELD_UPDATED_AT, event.getUpdatedAt());
+        if (event.getMetrics() != null) {
+            Writer entry = new Writer(32);
+            for (Map.Entry<String, Object> metric : event.getMetrics().entrySet()) {
+                if (metric.getKey() == null || metric.getValue() == null) {
+                    continue;
+                }
+                entry.reset();
+                entry.writeString(METRIC_KEY, metric.getKey());
+                writeMetricValue(entry, metric.getValue());
+                out.writeBytes(FIELD_METRIC, entry.buffer, entry.size);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static ActivityEvent decode(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new IllegalArgumentException("Not an encoded activity event");
+        }
+        if (data[1] > VERSION) {
+            throw new IllegalArgumentException("Unsupported activity event version " + data[1]);
+        }
+        Reader in = new Reader(data, 2, data.length);
+        ActivityEvent event = new ActivityEvent();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        while (in.hasMore()) {
+            int key = (int) in.readVarint();
+            int field = key >>> 3;
+            int wireType = key & 0x7;
+            switch (field) {
+                case FIELD_ID -> event.setId(in.readString());
+                case FIELD_USER_ID -> event.setUserId(in.readString());
+                case FIELD_TYPE -> event.setType(type((int) in.readVarint()));
+                case FIELD_DURATION -> event.setDuration((int) unZigZag(in.readVarint()));
+                case FIELD_CALORIES -> event.setCaloriesBurned((int) unZigZag(in.readVarint()));
+                case FIELD_START_TIME -> event.setStartTime(toDateTime(in.readVarint()));
+                case FIELD_CREATED_AT -> event.setCreatedAt(toDateTime(in.readVarint()));
+                case FIELD_UPDATED_AT -> event.setUpdatedAt(toDateTime(in.readVarint()));
+                case FIELD_METRIC -> readMetric(in.readEmbedded(), metrics);
+                default -> in.skip(wireType);
+            }
+        }
+        event.setMetrics(metrics);
+        return event;
+    }
+
+    private static void writeMetricValue(Writer entry, Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            entry.writeDoubleField(METRIC_DOUBLE, ((Number) value).doubleValue());
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            entry.writeVarintField(METRIC_LONG, zigZag(((Number) value).longValue()));
+        } else if (value instanceof Boolean bool) {
+            entry.writeVarintField(METRIC_BOOLEAN, bool ? 1 : 0);
+        } else {
+            // BigDecimal, lists, nested maps: keep their string form rather than drop them
+            entry.writeString(METRIC_STRING, value.toString());
+        }
+    }
+
+    private static void readMetric(Reader in, Map<String, Object> metrics) {
+        String key = null;
+        Object value = null;
+        while (in.hasMore()) {
+            int tag = (int) in.readVarint();
+            switch (tag >>> 3) {
+                case METRIC_KEY -> key = in.readString();
+                case METRIC_LONG -> value = unZigZag(in.readVarint());
+                case METRIC_DOUBLE -> value = Double.longBitsToDouble(in.readFixed64());
+                case METRIC_BOOLEAN -> value = in.readVarint() != 0;
+                case METRIC_STRING -> value = in.readString();
+                default -> in.skip(tag & 0x7);
+            }
+        }
+        if (key != null && value != null) {
+            metrics.put(key, value);
+        }
+    }
+
+    private static ActivityEventType type(int ordinal) {
+        // values appended by a newer producer are unknown here
+        return ordinal >= 0 && ordinal < TYPES.length ? TYPES[ordinal] : ActivityEventType.OTHER;
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int size;
+
+        Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buffer[size++] = (byte) b;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeVarintField(int field, long value) {
+            writeVarint(((long) field << 3) | WIRE_VARINT);
+            writeVarint(value);
+        }
+
+        void writeDoubleField(int field, double value) {
+            writeVarint(((long) field << 3) | WIRE_FIXED64);
+            long bits = Double.doubleToRawLongBits(value);
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                buffer[size++] = (byte) (bits >>> (8 * i));
+            }
+        }
+
+        void writeString(int field, String value) {
+            if (value != null) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                writeBytes(field, utf8, utf8.length);
+            }
+        }
+
+        void writeBytes(int field, byte[] bytes, int length) {
+            writeVarint(((long) field << 3) | WIRE_LEN);
+            writeVarint(length);
+            ensure(length);
+            System.arraycopy(bytes, 0, buffer, size, length);
+            size += length;
+        }
+
+        void writeTimestamp(int field, LocalDateTime value) {
+            if (value != null) {
+                writeVarintField(field, value.toInstant(ZoneOffset.UTC).toEpochMilli());
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private final int limit;
+        private int position;
+
+        Reader(byte[] data, int offset, int limit) {
+            this.data = data;
+            this.position = offset;
+            this.limit = limit;
+        }
+
+        boolean hasMore() {
+            return position < limit;
+        }
+
+        long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in activity event");
+        }
+
+        long readFixed64() {
+            long result = 0;
+            for (int i = 0; i < 8; i++) {
+                result |= (next() & 0xFFL) << (8 * i);
+            }
+            return result;
+        }
+
+        String readString() {
+            int length = length();
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        Reader readEmbedded() {
+            int length = length();
+            Reader embedded = new Reader(data, position, position + length);
+            position += length;
+            return embedded;
+        }
+
+        void skip(int wireType) {
+            switch (wireType) {
+                case WIRE_VARINT -> readVarint();
+                case WIRE_FIXED64 -> advance(8);
+                case WIRE_LEN -> advance(length());
+                default -> throw new IllegalArgumentException("Unknown wire type " + wireType + " in activity event");
+            }
+        }
+
+        private int length() {
+            long length = readVarint();
+            if (length < 0 || length > limit - position) {
+                throw new IllegalArgumentException("Truncated activity event");
+            }
+            return (int) length;
+        }
+
+        private void advance(int count) {
+            if (count > limit - position) {
+                throw new IllegalArgumentException("Truncated activity event");
+            }
+            position += count;
+        }
+
+        private byte next() {
+            if (position >= limit) {
+                throw new IllegalArgumentException("Truncated activity event");
+            }
+            return data[position++];
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.fitness.events;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Kafka deserializer for {@link ActivityEventCodec} payloads. Records that do
+ * not start with the codec's magic byte are handed to the legacy deserializer,
+ * so JSON still on the topic from before the switch keeps being consumed.
+ */
+public class ActivityEventDeserializer<T> implements Deserializer<T> {
+
+    private final Function<ActivityEvent, T> fromEvent;
+    private final Deserializer<T> legacy;
+
+    public ActivityEventDeserializer(Function<ActivityEvent, T> fromEvent, Deserializer<T> legacy) {
+        this.fromEvent = fromEvent;
+        this.legacy = legacy;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        if (legacy != null) {
+            legacy.configure(configs, isKey);
+        }
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (!ActivityEventCodec.isEncoded(data)) {
+            if (legacy == null) {
+                throw new SerializationException("Record on " + topic + " is not an encoded activity event");
+            }
+            return headers != null ? legacy.deserialize(topic, headers, data) : legacy.deserialize(topic, data);
+        }
+        try {
+            return fromEvent.apply(ActivityEventCodec.decode(data));
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Cannot decode activity event on " + topic, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (legacy != null) {
+            legacy.close();
+        }
+    }
+}
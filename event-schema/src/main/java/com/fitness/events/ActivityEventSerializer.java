@@ -0,0 +1,23 @@
+package com.fitness.events;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.function.Function;
+
+/**
+ * Kafka serializer writing {@link ActivityEventCodec} payloads. Services pass
+ * the mapping from their own model, so only this module knows the wire format.
+ */
+public class ActivityEventSerializer<T> implements Serializer<T> {
+
+    private final Function<T, ActivityEvent> toEvent;
+
+    public ActivityEventSerializer(Function<T, ActivityEvent> toEvent) {
+        this.toEvent = toEvent;
+    }
+
+    @Override
+    public byte[] serialize(String topic, T data) {
+        return data == null ? null : ActivityEventCodec.encode(toEvent.apply(data));
+    }
+}
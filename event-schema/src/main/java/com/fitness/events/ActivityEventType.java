@@ -0,0 +1,19 @@
+package com.fitness.events;
+
+/**
+ * Activity types as they travel on the wire. Events carry the ordinal, so
+ * values may only ever be appended; decoders map ordinals they do not know to
+ * {@link #OTHER}.
+ */
+public enum ActivityEventType {
+    RUNNING,
+    WALKING,
+    CYCLING,
+    SWIMMING,
+    WEIGHT_TRAINING,
+    YOGA,
+    HIIT,
+    CARDIO,
+    STRETCHING,
+    OTHER
+}
@@ -0,0 +1,107 @@
+package com.fitness.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ActivityEventCodecTests {
+
+	@Test
+	void roundTripsAllFields() {
+		ActivityEvent event = event();
+		event.getMetrics().put("laps", List.of(1, 2));
+		event.getMetrics().put("vo2", new BigDecimal("48.5"));
+
+		ActivityEvent decoded = ActivityEventCodec.decode(ActivityEventCodec.encode(event));
+
+		assertThat(decoded.getId()).isEqualTo("a1");
+		assertThat(decoded.getUserId()).isEqualTo("u1");
+		assertThat(decoded.getType()).isEqualTo(ActivityEventType.CYCLING);
+		assertThat(decoded.getDuration()).isEqualTo(90);
+		assertThat(decoded.getCaloriesBurned()).isEqualTo(760);
+		assertThat(decoded.getStartTime()).isEqualTo(LocalDateTime.of(2026, 5, 2, 17, 45));
+		assertThat(decoded.getCreatedAt()).isEqualTo(LocalDateTime.of(2026, 5, 2, 19, 20, 11, 7_000_000));
+		assertThat(decoded.getUpdatedAt()).isNull();
+		assertThat(decoded.getMetrics())
+				.containsEntry("distance", 38.4)
+				.containsEntry("heartRate", 138L)
+				.containsEntry("cadence", 85L)
+				.containsEntry("indoor", false)
+				.containsEntry("bike", "gravel")
+				.containsEntry("laps", "[1, 2]")
+				.containsEntry("vo2", "48.5");
+	}
+
+	@Test
+	void skipsUnknownFieldsAndTypes() {
+		ActivityEvent event = new ActivityEvent();
+		event.setId("a1");
+		event.setType(ActivityEventType.YOGA);
+		byte[] encoded = ActivityEventCodec.encode(event);
+
+		// a newer producer appends field 15 (varint), field 16 (fixed64) and field 17 (string),
+		// and rewrites the type to an ordinal this decoder has never seen
+		byte[] extra = {(byte) 0x78, 0x05, (byte) 0x81, 0x01, 1, 2, 3, 4, 5, 6, 7, 8, (byte) 0x8A, 0x01, 0x02, 'h', 'i', 0x18, 0x40};
+		byte[] newer = Arrays.copyOf(encoded, encoded.length + extra.length);
+		System.arraycopy(extra, 0, newer, encoded.length, extra.length);
+
+		ActivityEvent decoded = ActivityEventCodec.decode(newer);
+
+		assertThat(decoded.getId()).isEqualTo("a1");
+		assertThat(decoded.getType()).isEqualTo(ActivityEventType.OTHER);
+	}
+
+	@Test
+	void keepsNegativeAndLargeValues() {
+		ActivityEvent event = new ActivityEvent();
+		event.setDuration(-1);
+		event.setCaloriesBurned(Integer.MAX_VALUE);
+		event.setStartTime(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 123_000_000));
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("elevation", Long.MIN_VALUE);
+		event.setMetrics(metrics);
+
+		ActivityEvent decoded = ActivityEventCodec.decode(ActivityEventCodec.encode(event));
+
+		assertThat(decoded.getDuration()).isEqualTo(-1);
+		assertThat(decoded.getCaloriesBurned()).isEqualTo(Integer.MAX_VALUE);
+		assertThat(decoded.getStartTime()).isEqualTo(event.getStartTime());
+		assertThat(decoded.getMetrics()).containsEntry("elevation", Long.MIN_VALUE);
+	}
+
+	@Test
+	void rejectsForeignAndTruncatedPayloads() {
+		byte[] encoded = ActivityEventCodec.encode(event());
+
+		assertThat(ActivityEventCodec.isEncoded("{\"id\":\"a1\"}".getBytes())).isFalse();
+		assertThatThrownBy(() -> ActivityEventCodec.decode(Arrays.copyOf(encoded, encoded.length - 3)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static ActivityEvent event() {
+		ActivityEvent event = new ActivityEvent();
+		event.setId("a1");
+		event.setUserId("u1");
+		event.setType(ActivityEventType.CYCLING);
+		event.setDuration(90);
+		event.setCaloriesBurned(760);
+		event.setStartTime(LocalDateTime.of(2026, 5, 2, 17, 45));
+		event.setCreatedAt(LocalDateTime.of(2026, 5, 2, 19, 20, 11, 7_000_000));
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("distance", 38.4);
+		metrics.put("heartRate", 138);
+		metrics.put("cadence", 85L);
+		metrics.put("indoor", false);
+		metrics.put("bike", "gravel");
+		event.setMetrics(metrics);
+		return event;
+	}
+}
@@ -0,0 +1,91 @@
+package com.fitness.signature;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * The {@code X-Gateway-Signature} header the gateway sends along with
+ * identities it vouches for. Its value is {@code <issuedAt>.<mac>}, where
+ * {@code issuedAt} is in epoch seconds and {@code mac} is the base64url
+ * HMAC-SHA256 of {@code <purpose>:<issuedAt>:<value>} under the secret shared
+ * by the gateway and the services.
+ *
+ * <p>A signature is only accepted within {@code maxAge} of its issue time, in
+ * either direction to allow for clock skew, so a captured header cannot be
+ * replayed later. Without a secret nothing is signed and nothing is trusted.
+ */
+public class GatewaySignature {
+
+    public static final String HEADER = "X-Gateway-Signature";
+    /** Purpose of the signature over {@code X-User-ID}. */
+    public static final String USER_ID = "user";
+    /** Purpose of the signature over the {@code keycloakId} of a provisioning request. */
+    public static final String KEYCLOAK_ID = "keycloak";
+
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofSeconds(30);
+
+    private final byte[] secret;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    public GatewaySignature(String secret, Duration maxAge) {
+        this(secret, maxAge, Clock.systemUTC());
+    }
+
+    public GatewaySignature(String secret, Duration maxAge, Clock clock) {
+        this.secret = secret == null ? new byte[0] : secret.getBytes(StandardCharsets.UTF_8);
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return secret.length > 0;
+    }
+
+    /** Returns the header value vouching for {@code value}, or null without a secret. */
+    public String sign(String purpose, String value) {
+        if (!isEnabled()) {
+            return null;
+        }
+        long issuedAt = clock.instant().getEpochSecond();
+        return issuedAt + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(mac(purpose, issuedAt, value));
+    }
+
+    public boolean verify(String purpose, String value, String signature) {
+        if (!isEnabled() || value == null || signature == null) {
+            return false;
+        }
+        int separator = signature.indexOf('.');
+        if (separator < 0) {
+            return false;
+        }
+        try {
+            long issuedAt = Long.parseLong(signature.substring(0, separator));
+            long age = clock.instant().getEpochSecond() - issuedAt;
+            if (Math.abs(age) > maxAge.toSeconds()) {
+                return false;
+            }
+            byte[] presented = Base64.getUrlDecoder().decode(signature.substring(separator + 1));
+            return MessageDigest.isEqual(mac(purpose, issuedAt, value), presented);
+        } catch (IllegalArgumentException e) {
+            // not a number or not base64url
+            return false;
+        }
+    }
+
+    private byte[] mac(String purpose, long issuedAt, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac.doFinal((purpose + ":" + issuedAt + ":" + value).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.fitness.signature;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GatewaySignatureTests {
+
+	private static final Instant NOW = Instant.parse("2026-10-19T08:00:00Z");
+
+	private final GatewaySignature gateway = at(NOW);
+
+	@Test
+	void freshSignatureIsAccepted() {
+		String signature = gateway.sign(GatewaySignature.USER_ID, "u1");
+
+		assertThat(signature).startsWith(NOW.getEpochSecond() + ".");
+		assertThat(at(NOW.plusSeconds(30)).verify(GatewaySignature.USER_ID, "u1", signature)).isTrue();
+	}
+
+	@Test
+	void signatureOnlyVouchesForItsPurposeAndValue() {
+		String signature = gateway.sign(GatewaySignature.USER_ID, "u1");
+
+		assertThat(gateway.verify(GatewaySignature.USER_ID, "u2", signature)).isFalse();
+		assertThat(gateway.verify(GatewaySignature.KEYCLOAK_ID, "u1", signature)).isFalse();
+		assertThat(new GatewaySignature("other", Duration.ofSeconds(30), Clock.fixed(NOW, ZoneOffset.UTC))
+				.verify(GatewaySignature.USER_ID, "u1", signature)).isFalse();
+	}
+
+	@Test
+	void replayedSignatureIsRefusedOnceItExpires() {
+		String signature = gateway.sign(GatewaySignature.USER_ID, "u1");
+
+		assertThat(at(NOW.plusSeconds(31)).verify(GatewaySignature.USER_ID, "u1", signature)).isFalse();
+	}
+
+	@Test
+	void issueTimeCannotBeMovedForward() {
+		String signature = gateway.sign(GatewaySignature.USER_ID, "u1");
+		String mac = signature.substring(signature.indexOf('.') + 1);
+		GatewaySignature later = at(NOW.plusSeconds(600));
+
+		assertThat(later.verify(GatewaySignature.USER_ID, "u1", (NOW.getEpochSecond() + 600) + "." + mac)).isFalse();
+	}
+
+	@Test
+	void signatureFromTooFarInTheFutureIsRefused() {
+		String signature = at(NOW.plusSeconds(31)).sign(GatewaySignature.USER_ID, "u1");
+
+		assertThat(gateway.verify(GatewaySignature.USER_ID, "u1", signature)).isFalse();
+	}
+
+	@Test
+	void malformedSignaturesAreRefused() {
+		assertThat(gateway.verify(GatewaySignature.USER_ID, "u1", null)).isFalse();
+		assertThat(gateway.verify(GatewaySignature.USER_ID, "u1", "no-separator")).isFalse();
+		assertThat(gateway.verify(GatewaySignature.USER_ID, "u1", "yesterday.abc")).isFalse();
+		assertThat(gateway.verify(GatewaySignature.USER_ID, "u1", NOW.getEpochSecond() + ".not base64!")).isFalse();
+		assertThat(gateway.verify(GatewaySignature.USER_ID, null, gateway.sign(GatewaySignature.USER_ID, "u1")))
+				.isFalse();
+	}
+
+	@Test
+	void withoutASecretNothingIsSignedOrTrusted() {
+		GatewaySignature disabled = new GatewaySignature("", Duration.ofSeconds(30));
+
+		assertThat(disabled.isEnabled()).isFalse();
+		assertThat(disabled.sign(GatewaySignature.USER_ID, "u1")).isNull();
+		assertThat(disabled.verify(GatewaySignature.USER_ID, "u1", gateway.sign(GatewaySignature.USER_ID, "u1")))
+				.isFalse();
+	}
+
+	private static GatewaySignature at(Instant now) {
+		return new GatewaySignature("secret", Duration.ofSeconds(30), Clock.fixed(now, ZoneOffset.UTC));
+	}
+}
@@ -0,0 +1,94 @@
+package com.fitness.gateway;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Remembers tokens the delegate has already verified, keyed by the token's
+ * SHA-256, so a client reusing its access token skips signature verification.
+ * An entry lives until the token's {@code exp} (capped at {@code maxTtl}), so an
+ * expired token always goes back to the delegate and is rejected there.
+ *
+ * <p>Expired entries are swept when the cache is full, at most once per
+ * {@link #SWEEP_INTERVAL}; until the next sweep a full cache simply does not
+ * take new tokens, so inserts stay O(1) however many live tokens it holds.
+ */
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+    static final Duration SWEEP_INTERVAL = Duration.ofSeconds(1);
+
+    private record CachedJwt(Jwt jwt, Instant expiresAt) {
+    }
+
+    private final ReactiveJwtDecoder delegate;
+    private final int maxEntries;
+    private final Duration maxTtl;
+    private final Clock clock;
+    private final Map<String, CachedJwt> verified = new ConcurrentHashMap<>();
+    private final AtomicReference<Instant> nextSweep = new AtomicReference<>(Instant.MIN);
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, int maxEntries, Duration maxTtl, Clock clock) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.maxTtl = maxTtl;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) {
+        String key = sha256(token);
+        CachedJwt cached = verified.get(key);
+        if (cached != null) {
+            if (clock.instant().isBefore(cached.expiresAt())) {
+                return Mono.just(cached.jwt());
+            }
+            verified.remove(key, cached);
+        }
+        return delegate.decode(token).doOnNext(jwt -> remember(key, jwt));
+    }
+
+    private void remember(String key, Jwt jwt) {
+        if (jwt.getExpiresAt() == null) {
+            return;
+        }
+        Instant now = clock.instant();
+        Instant expiresAt = jwt.getExpiresAt().isBefore(now.plus(maxTtl)) ? jwt.getExpiresAt() : now.plus(maxTtl);
+        if (verified.size() >= maxEntries) {
+            sweep(now);
+            if (verified.size() >= maxEntries) {
+                // full of live tokens; this one is simply verified again next time
+                return;
+            }
+        }
+        verified.put(key, new CachedJwt(jwt, expiresAt));
+    }
+
+    private void sweep(Instant now) {
+        Instant due = nextSweep.get();
+        if (now.isBefore(due) || !nextSweep.compareAndSet(due, now.plus(SWEEP_INTERVAL))) {
+            return;
+        }
+        verified.values().removeIf(entry -> !now.isBefore(entry.expiresAt()));
+    }
+
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
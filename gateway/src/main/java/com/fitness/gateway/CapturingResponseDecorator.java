@@ -0,0 +1,75 @@
+package com.fitness.gateway;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/**
+ * Copies the response body as it streams to the client and hands the copy to
+ * {@link #captured} once complete. The client never waits for the copy, and
+ * capture is abandoned as soon as the body grows past {@code maxBytes}.
+ */
+abstract class CapturingResponseDecorator extends ServerHttpResponseDecorator {
+    /** Set by the gateway for one request only; replaying them would report another request's state. */
+    private static final List<String> PER_REQUEST_HEADERS = List.of(
+            HttpHeaders.TRANSFER_ENCODING,
+            RateLimitFilter.LIMIT_HEADER,
+            RateLimitFilter.REMAINING_HEADER,
+            HttpHeaders.RETRY_AFTER,
+            ResponseCacheFilter.CACHE_HEADER,
+            RequestCoalescingFilter.COALESCED_HEADER);
+
+    private final long maxBytes;
+
+    CapturingResponseDecorator(ServerHttpResponse delegate, long maxBytes) {
+        super(delegate);
+        this.maxBytes = maxBytes;
+    }
+
+    /** Whether this response is worth copying at all; called once, when the body starts. */
+    protected abstract boolean shouldCapture();
+
+    protected abstract void captured(byte[] body);
+
+    /** A read-only copy of the response headers, without the per-request ones, fit to send with a replayed body. */
+    protected HttpHeaders replayableHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(getHeaders());
+        PER_REQUEST_HEADERS.forEach(headers::remove);
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        if (!shouldCapture()) {
+            return super.writeWith(body);
+        }
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        boolean[] tooLarge = {false};
+        Flux<? extends DataBuffer> copying = Flux.from(body)
+                .doOnNext(buffer -> {
+                    if (tooLarge[0] || copy.size() + buffer.readableByteCount() > maxBytes) {
+                        tooLarge[0] = true;
+                        return;
+                    }
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    int position = buffer.readPosition();
+                    buffer.read(bytes);
+                    buffer.readPosition(position);
+                    copy.writeBytes(bytes);
+                })
+                .doOnComplete(() -> {
+                    if (!tooLarge[0]) {
+                        captured(copy.toByteArray());
+                    }
+                });
+        return super.writeWith(copying);
+    }
+}
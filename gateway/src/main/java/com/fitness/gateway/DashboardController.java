@@ -0,0 +1,109 @@
+package com.fitness.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Home screen document built from the user profile, recent activities and
+ * latest recommendations, fetched in parallel. Each leg has its own timeout;
+ * a leg that fails or runs out of time is left null and listed under
+ * {@code unavailable}, and the response is marked {@code partial}. Rate
+ * limiting and route metrics come from {@link DashboardRouteFilter}.
+ */
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+    private static final Logger log = LoggerFactory.getLogger(DashboardController.class);
+
+    private final WebClient webClient;
+    private final KeycloakUserSyncFilter keycloakUserSyncFilter;
+    private final GatewaySigner gatewaySigner;
+
+    @Value("${gateway.dashboard.timeouts.profile:500ms}")
+    private Duration profileTimeout;
+
+    @Value("${gateway.dashboard.timeouts.activities:800ms}")
+    private Duration activitiesTimeout;
+
+    @Value("${gateway.dashboard.timeouts.recommendations:800ms}")
+    private Duration recommendationsTimeout;
+
+    @Value("${gateway.dashboard.recent-activities:10}")
+    private int recentActivities;
+
+    @Value("${gateway.dashboard.latest-recommendations:5}")
+    private int latestRecommendations;
+
+    public DashboardController(WebClient.Builder loadBalancedWebClientBuilder, KeycloakUserSyncFilter keycloakUserSyncFilter,
+                               GatewaySigner gatewaySigner) {
+        this.webClient = loadBalancedWebClientBuilder.build();
+        this.keycloakUserSyncFilter = keycloakUserSyncFilter;
+        this.gatewaySigner = gatewaySigner;
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Map<String, Object>>> dashboard(@AuthenticationPrincipal Jwt jwt) {
+        return keycloakUserSyncFilter.resolveUserId(jwt)
+                .flatMap(userId -> Mono.zip(
+                                leg("profile", "http://user-service/api/users/{userId}", profileTimeout, userId),
+                                leg("activities", "http://activity-service/api/activities?limit=" + recentActivities,
+                                        activitiesTimeout, userId),
+                                leg("recommendations", "http://ai-service/api/recommendations/user/{userId}/latest?limit="
+                                        + latestRecommendations, recommendationsTimeout, userId))
+                        .map(legs -> {
+                            Map<String, Object> dashboard = new LinkedHashMap<>();
+                            List<String> unavailable = new ArrayList<>();
+                            dashboard.put("userId", userId);
+                            put(dashboard, unavailable, "profile", legs.getT1());
+                            put(dashboard, unavailable, "activities", legs.getT2());
+                            put(dashboard, unavailable, "recommendations", legs.getT3());
+                            dashboard.put("partial", !unavailable.isEmpty());
+                            dashboard.put("unavailable", unavailable);
+                            return ResponseEntity.ok(dashboard);
+                        }))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    private Mono<Optional<JsonNode>> leg(String name, String uri, Duration timeout, String userId) {
+        return webClient.get()
+                .uri(uri, userId)
+                .headers(headers -> {
+                    headers.set(KeycloakUserSyncFilter.USER_ID_HEADER, userId);
+                    gatewaySigner.sign(headers, GatewaySigner.USER_ID, userId);
+                })
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(timeout)
+                .map(Optional::of)
+                .onErrorResume(e -> {
+                    log.warn("Dashboard leg {} unavailable for user {}: {}", name, userId, e.toString());
+                    return Mono.just(Optional.empty());
+                })
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private void put(Map<String, Object> dashboard, List<String> unavailable, String name, Optional<JsonNode> leg) {
+        dashboard.put(name, leg.orElse(null));
+        if (leg.isEmpty()) {
+            unavailable.add(name);
+        }
+    }
+}
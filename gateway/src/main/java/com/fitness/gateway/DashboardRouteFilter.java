@@ -0,0 +1,54 @@
+package com.fitness.gateway;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link DashboardController} is a plain controller, so requests to it never
+ * pass through the gateway's global filters. This runs the ones that matter
+ * for it, {@link RouteMetricsFilter} and {@link RateLimitFilter}, as if the
+ * dashboard were a route with id {@value #ROUTE_ID}; its limit is set under
+ * {@code gateway.rate-limit.routes.dashboard}. It runs after Spring Security,
+ * so the caller is known.
+ */
+@Component
+public class DashboardRouteFilter implements WebFilter, Ordered {
+    static final String ROUTE_ID = "dashboard";
+    static final String PATH = "/api/dashboard";
+
+    private final Route route = Route.async()
+            .id(ROUTE_ID)
+            .uri("forward:" + PATH)
+            .predicate(exchange -> true)
+            .build();
+    private final RouteMetricsFilter routeMetricsFilter;
+    private final RateLimitFilter rateLimitFilter;
+
+    public DashboardRouteFilter(RouteMetricsFilter routeMetricsFilter, RateLimitFilter rateLimitFilter) {
+        this.routeMetricsFilter = routeMetricsFilter;
+        this.rateLimitFilter = rateLimitFilter;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (!path.equals(PATH) && !path.startsWith(PATH + "/")) {
+            return chain.filter(exchange);
+        }
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_PREDICATE_MATCHED_PATH_ATTR, PATH + "/**");
+        return routeMetricsFilter.filter(exchange, metered -> rateLimitFilter.filter(metered, chain::filter));
+    }
+
+    @Override
+    public int getOrder() {
+        // Spring Security's WebFilterChainProxy runs at -100
+        return 0;
+    }
+}
@@ -0,0 +1,21 @@
+package com.fitness.gateway;
+
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class GatewayHttpClientConfig {
+
+    /**
+     * Turns on Reactor Netty's client metrics (connect time, TLS handshake, data
+     * sent/received per remote address). URIs are collapsed to one tag value;
+     * per-route latency is recorded by {@link RouteMetricsFilter} instead.
+     * Customizers apply to the gateway's {@code HttpClient} bean, which
+     * {@link HedgeGatewayFilterFactory} sends its calls on as well.
+     */
+    @Bean
+    public HttpClientCustomizer httpClientMetricsCustomizer() {
+        return httpClient -> httpClient.metrics(true, uri -> "upstream");
+    }
+}
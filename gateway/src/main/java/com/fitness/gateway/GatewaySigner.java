@@ -0,0 +1,40 @@
+package com.fitness.gateway;
+
+import com.fitness.signature.GatewaySignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+/**
+ * Signs the identities the gateway vouches for, so downstream services can tell
+ * them from headers a client sent directly. The signature format is defined by
+ * {@link GatewaySignature}. Without a configured secret nothing is signed and
+ * downstream services fall back to validating the caller themselves.
+ */
+@Component
+public class GatewaySigner {
+    private static final Logger log = LoggerFactory.getLogger(GatewaySigner.class);
+
+    public static final String HEADER = GatewaySignature.HEADER;
+    public static final String USER_ID = GatewaySignature.USER_ID;
+    public static final String KEYCLOAK_ID = GatewaySignature.KEYCLOAK_ID;
+
+    private final GatewaySignature signature;
+
+    public GatewaySigner(@Value("${fitness.gateway.signing-secret:}") String secret) {
+        // the maximum age only matters to the services verifying the signature
+        this.signature = new GatewaySignature(secret, GatewaySignature.DEFAULT_MAX_AGE);
+        if (!signature.isEnabled()) {
+            log.warn("fitness.gateway.signing-secret is not set; downstream services will not trust X-User-ID");
+        }
+    }
+
+    /** Adds the signature of {@code value} to the headers, if a secret is configured. */
+    public void sign(HttpHeaders headers, String purpose, String value) {
+        if (signature.isEnabled()) {
+            headers.set(HEADER, signature.sign(purpose, value));
+        }
+    }
+}
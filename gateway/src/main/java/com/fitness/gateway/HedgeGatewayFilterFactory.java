@@ -0,0 +1,474 @@
+package com.fitness.gateway;
+
+import com.fitness.loadbalancer.ExcludingRequestContext;
+import io.netty.channel.ChannelOption;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedges GETs on an {@code lb://} route. The request goes to one instance, and
+ * if it has not answered within the route's recent p95 latency, a second copy
+ * goes to a different instance. The first response wins and the other call is
+ * cancelled. Hedges are capped at {@code budgetPercent} of the route's requests
+ * per {@code budgetWindow}. Routes with a single instance, and non-GET requests,
+ * take the normal load-balanced path.
+ *
+ * <p>Both instances are picked by the route's load balancer, with the second
+ * pick excluding the first, and every call goes through the load balancer
+ * lifecycle; peak-EWMA latencies, outstanding counts and ejections see hedged
+ * traffic like any other. The winning body is streamed to the client, not
+ * buffered. A 5xx counts as a failure. When the primary fails before a hedge
+ * was sent, the request is retried once on the other instance; when a hedge
+ * was sent and failed too, it is not.
+ *
+ * <p>Calls go out on the gateway's own {@link HttpClient}, so its pool,
+ * timeouts and {@code HttpClientCustomizer}s apply, as do the route's
+ * {@code connect-timeout} and {@code response-timeout} metadata. Request and
+ * response headers pass through the gateway's {@link HttpHeadersFilter}s, which
+ * add the {@code X-Forwarded-*} headers, the same as on the normal path.
+ *
+ * <pre>
+ * filters:
+ *   - name: Hedge
+ *     args:
+ *       budgetPercent: 5
+ *       minDelay: 20ms
+ *       maxDelay: 1s
+ * </pre>
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+    private static final Logger log = LoggerFactory.getLogger(HedgeGatewayFilterFactory.class);
+
+    /** RFC 9110 section 7.6.1; never forwarded in either direction. */
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of("connection", "keep-alive", "proxy-authenticate",
+            "proxy-authorization", "proxy-connection", "te", "trailer", "transfer-encoding", "upgrade");
+
+    private final LoadBalancerClientFactory clientFactory;
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+    private final HttpClient httpClient;
+    private final HttpClientProperties httpClientProperties;
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider;
+    private volatile List<HttpHeadersFilter> headersFilters;
+
+    public HedgeGatewayFilterFactory(LoadBalancerClientFactory clientFactory, MeterRegistry meterRegistry,
+                                     ObservationRegistry observationRegistry, HttpClient httpClient,
+                                     HttpClientProperties httpClientProperties,
+                                     ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider) {
+        super(Config.class);
+        this.clientFactory = clientFactory;
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
+        this.httpClient = httpClient;
+        this.httpClientProperties = httpClientProperties;
+        this.headersFiltersProvider = headersFiltersProvider;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Map<String, RouteState> states = new ConcurrentHashMap<>();
+        Map<String, WebClient> webClients = new ConcurrentHashMap<>();
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            if (route == null || exchange.getRequest().getMethod() != HttpMethod.GET
+                    || !"lb".equals(route.getUri().getScheme())) {
+                return chain.filter(exchange);
+            }
+            String serviceId = route.getUri().getHost();
+            ReactorServiceInstanceLoadBalancer loadBalancer =
+                    clientFactory.getInstance(serviceId, ReactorServiceInstanceLoadBalancer.class);
+            if (loadBalancer == null) {
+                return chain.filter(exchange);
+            }
+            RouteState state = states.computeIfAbsent(route.getId(), id -> new RouteState(id, config, meterRegistry));
+            WebClient webClient = webClients.computeIfAbsent(route.getId(), id -> webClient(route));
+            Duration responseTimeout = responseTimeout(route);
+            RequestData requestData = new RequestData(exchange.getRequest());
+            return choose(loadBalancer, new RequestDataContext(requestData))
+                    .flatMap(primary -> choose(loadBalancer, new ExcludingRequestContext(requestData, primary))
+                            .map(secondary -> List.of(primary, secondary)))
+                    .defaultIfEmpty(List.of())
+                    .flatMap(instances -> instances.isEmpty()
+                            ? chain.filter(exchange)
+                            : hedge(exchange, state, new Target(webClient, responseTimeout, serviceId),
+                                    instances.get(0), instances.get(1)));
+        };
+    }
+
+    /** The gateway's HTTP client, with the route's connect timeout if it sets one, as NettyRoutingFilter does. */
+    private WebClient webClient(Route route) {
+        HttpClient client = httpClient;
+        if (route.getMetadata().get(RouteMetadataUtils.CONNECT_TIMEOUT_ATTR) instanceof Number connectTimeout) {
+            client = client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout.intValue());
+        }
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(client))
+                .observationRegistry(observationRegistry)
+                .build();
+    }
+
+    /** The route's response timeout, else the gateway's; null for none. */
+    private Duration responseTimeout(Route route) {
+        if (route.getMetadata().get(RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR) instanceof Number millis) {
+            return millis.longValue() >= 0 ? Duration.ofMillis(millis.longValue()) : null;
+        }
+        return httpClientProperties.getResponseTimeout();
+    }
+
+    private List<HttpHeadersFilter> headersFilters() {
+        // looked up lazily: some filters depend on beans created after this factory
+        if (headersFilters == null) {
+            headersFilters = headersFiltersProvider.getIfAvailable(List::of);
+        }
+        return headersFilters;
+    }
+
+    private static Mono<ServiceInstance> choose(ReactorServiceInstanceLoadBalancer loadBalancer, RequestDataContext context) {
+        return loadBalancer.choose(new DefaultRequest<>(context))
+                .filter(Response::hasServer)
+                .map(Response::getServer);
+    }
+
+    private Mono<Void> hedge(ServerWebExchange exchange, RouteState state, Target target,
+                             ServiceInstance primary, ServiceInstance secondary) {
+        Duration delay = state.hedgeDelay();
+        // set on a timer thread, read where the calls complete
+        AtomicBoolean hedged = new AtomicBoolean();
+        state.countRequest();
+
+        Call primaryCall = new Call(exchange, target, primary);
+        Mono<Call> first = primaryCall.send()
+                // a primary that loses to the hedge was at least this slow
+                .doOnCancel(() -> state.record(primaryCall.elapsedNanos()));
+        Mono<Call> second = Mono.delay(delay)
+                .filter(tick -> state.tryAcquireHedge(System.nanoTime()))
+                .flatMap(tick -> {
+                    hedged.set(true);
+                    state.fired.increment();
+                    return new Call(exchange, target, secondary).send()
+                            .doOnNext(call -> state.won.increment());
+                });
+
+        return Mono.firstWithValue(first, second)
+                .doOnDiscard(Call.class, Call::discard)
+                .onErrorResume(e -> {
+                    if (hedged.get()) {
+                        // both instances just failed; asking the secondary again would not help
+                        log.warn("Hedged request to {} failed on both instances: {}", state.routeId, e.getMessage());
+                        return Mono.error(upstreamFailure(e));
+                    }
+                    log.warn("Request to {} failed, retrying on another instance: {}", state.routeId, e.getMessage());
+                    return new Call(exchange, target, secondary).send();
+                })
+                .doOnNext(winner -> state.record(winner.elapsedNanos()))
+                .flatMap(winner -> winner.writeTo(exchange))
+                .onErrorResume(WebClientResponseException.class, e -> writeError(exchange, e));
+    }
+
+    /** Where the calls of one request go: the route's client and timeout, and the service to balance over. */
+    private record Target(WebClient webClient, Duration responseTimeout, String serviceId) {
+    }
+
+    /** The 5xx one of the calls got, if any, out of the error {@code firstWithValue} reports when all fail. */
+    private static Throwable upstreamFailure(Throwable e) {
+        if (e instanceof WebClientResponseException) {
+            return e;
+        }
+        return Arrays.stream(e.getSuppressed())
+                .filter(WebClientResponseException.class::isInstance)
+                .findFirst()
+                .orElse(e);
+    }
+
+    private Mono<Void> writeError(ServerWebExchange exchange, WebClientResponseException upstream) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(upstream.getStatusCode());
+        response.getHeaders().putAll(responseHeaders(upstream.getHeaders(), exchange));
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(upstream.getResponseBodyAsByteArray())));
+    }
+
+    private HttpHeaders responseHeaders(HttpHeaders upstream, ServerWebExchange exchange) {
+        return endToEnd(HttpHeadersFilter.filter(headersFilters(), upstream, exchange, HttpHeadersFilter.Type.RESPONSE));
+    }
+
+    /** The headers without hop-by-hop ones, including any the {@code Connection} header names. */
+    static HttpHeaders endToEnd(HttpHeaders headers) {
+        HttpHeaders copy = new HttpHeaders();
+        copy.addAll(headers);
+        List<String> named = headers.getConnection();
+        List<String> remove = copy.keySet().stream()
+                .filter(name -> HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))
+                        || named.stream().anyMatch(name::equalsIgnoreCase))
+                .toList();
+        remove.forEach(copy::remove);
+        return copy;
+    }
+
+    /**
+     * One upstream call to a chosen instance, reported to the load balancer
+     * lifecycle like a call made by the gateway's own load balancer filter.
+     */
+    private class Call {
+        private final ServerWebExchange exchange;
+        private final Target target;
+        private final ServiceInstance instance;
+        private final URI uri;
+        private final Set<LoadBalancerLifecycle> lifecycles;
+        private final Request<RequestDataContext> lbRequest;
+        private final Response<ServiceInstance> lbResponse;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private long startNanos;
+        private ResponseEntity<Flux<DataBuffer>> response;
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        Call(ServerWebExchange exchange, Target target, ServiceInstance instance) {
+            this.exchange = exchange;
+            this.target = target;
+            this.instance = instance;
+            ServerHttpRequest request = exchange.getRequest();
+            this.uri = UriComponentsBuilder.fromUri(instance.getUri())
+                    .path(request.getURI().getRawPath())
+                    .query(request.getURI().getRawQuery())
+                    .build(true)
+                    .toUri();
+            this.lifecycles = (Set) LoadBalancerLifecycleValidator.getSupportedLifecycleProcessors(
+                    clientFactory.getInstances(target.serviceId(), LoadBalancerLifecycle.class),
+                    RequestDataContext.class, ResponseData.class, ServiceInstance.class);
+            this.lbRequest = new DefaultRequest<>(new RequestDataContext(new RequestData(request)));
+            this.lbResponse = new DefaultResponse(instance);
+        }
+
+        /** Emits this call once the response headers are in; the body is left to {@link #writeTo}. */
+        Mono<Call> send() {
+            return Mono.defer(() -> {
+                lifecycles.forEach(lifecycle -> lifecycle.onStart(lbRequest));
+                lifecycles.forEach(lifecycle -> lifecycle.onStartRequest(lbRequest, lbResponse));
+                startNanos = System.nanoTime();
+                HttpHeaders forwarded = endToEnd(HttpHeadersFilter.filterRequest(headersFilters(), exchange));
+                if (!Boolean.TRUE.equals(exchange.getAttribute(ServerWebExchangeUtils.PRESERVE_HOST_HEADER_ATTRIBUTE))) {
+                    forwarded.remove(HttpHeaders.HOST);
+                }
+                return target.webClient().get()
+                        .uri(uri)
+                        .headers(headers -> headers.addAll(forwarded))
+                        .httpRequest(request -> {
+                            if (target.responseTimeout() != null) {
+                                // a timed-out call fails like any other, so the other instance is tried
+                                HttpClientRequest reactorRequest = request.getNativeRequest();
+                                reactorRequest.responseTimeout(target.responseTimeout());
+                            }
+                        })
+                        .retrieve()
+                        // a 4xx is the answer; only 5xx and transport errors count as failures
+                        .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> Mono.empty())
+                        .toEntityFlux(DataBuffer.class)
+                        .doOnError(e -> complete(CompletionContext.Status.FAILED, e))
+                        // the losing call; not a failure, but its time so far still counts
+                        .doOnCancel(() -> complete(CompletionContext.Status.SUCCESS, null))
+                        .map(entity -> {
+                            response = entity;
+                            return this;
+                        });
+            });
+        }
+
+        long elapsedNanos() {
+            return startNanos == 0 ? 0 : System.nanoTime() - startNanos;
+        }
+
+        Mono<Void> writeTo(ServerWebExchange exchange) {
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, uri);
+            ServerHttpResponse out = exchange.getResponse();
+            out.setStatusCode(response.getStatusCode());
+            out.getHeaders().putAll(responseHeaders(response.getHeaders(), exchange));
+            return out.writeWith(response.getBody())
+                    .doOnSuccess(done -> complete(CompletionContext.Status.SUCCESS, null))
+                    .doOnError(e -> complete(CompletionContext.Status.FAILED, e))
+                    .doOnCancel(() -> complete(CompletionContext.Status.SUCCESS, null));
+        }
+
+        /** A response that arrived after the other call had already won: drain it and let the connection go. */
+        void discard() {
+            if (response != null && response.getBody() != null) {
+                response.getBody().subscribe(DataBufferUtils::release);
+            }
+            complete(CompletionContext.Status.SUCCESS, null);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(CompletionContext.Status status, Throwable error) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            ResponseData responseData = null;
+            if (response != null) {
+                responseData = new ResponseData(response.getStatusCode(), response.getHeaders(),
+                        new LinkedMultiValueMap<>(), lbRequest.getContext().getClientRequest());
+            } else if (error instanceof WebClientResponseException upstream) {
+                responseData = new ResponseData(upstream.getStatusCode(), upstream.getHeaders(),
+                        new LinkedMultiValueMap<>(), lbRequest.getContext().getClientRequest());
+            }
+            CompletionContext<ResponseData, ServiceInstance, RequestDataContext> context =
+                    new CompletionContext<>(status, error, lbRequest, lbResponse, responseData);
+            lifecycles.forEach(lifecycle -> lifecycle.onComplete(context));
+        }
+    }
+
+    /**
+     * Recent latencies and hedge budget for one route.
+     */
+    static class RouteState {
+        private static final int SAMPLES = 512;
+
+        private final String routeId;
+        private final Config config;
+        private final long[] latencies = new long[SAMPLES];
+        private final AtomicLong recorded = new AtomicLong();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong hedges = new AtomicLong();
+        private final Counter fired;
+        private final Counter won;
+        private volatile long windowStart = System.nanoTime();
+        private volatile long p95Nanos;
+
+        RouteState(String routeId, Config config, MeterRegistry meterRegistry) {
+            this.routeId = routeId;
+            this.config = config;
+            this.fired = meterRegistry.counter("gateway.hedge.requests", "route", routeId, "outcome", "fired");
+            this.won = meterRegistry.counter("gateway.hedge.requests", "route", routeId, "outcome", "won");
+        }
+
+        void countRequest() {
+            requests.incrementAndGet();
+        }
+
+        void record(long nanos) {
+            if (nanos <= 0) {
+                return;
+            }
+            long count = recorded.getAndIncrement();
+            latencies[(int) (count % SAMPLES)] = nanos;
+            // recompute the percentile every 64 samples rather than on every request
+            if (count % 64 == 63) {
+                long[] snapshot = Arrays.copyOf(latencies, (int) Math.min(count + 1, SAMPLES));
+                Arrays.sort(snapshot);
+                p95Nanos = snapshot[(int) (snapshot.length * 0.95)];
+            }
+        }
+
+        Duration hedgeDelay() {
+            long delay = p95Nanos == 0 ? config.getMaxDelay().toNanos() : p95Nanos;
+            delay = Math.max(config.getMinDelay().toNanos(), Math.min(config.getMaxDelay().toNanos(), delay));
+            return Duration.ofNanos(delay);
+        }
+
+        boolean tryAcquireHedge(long now) {
+            if (now - windowStart > config.getBudgetWindow().toNanos()) {
+                windowStart = now;
+                requests.set(0);
+                hedges.set(0);
+            }
+            if ((hedges.get() + 1) * 100.0 > requests.get() * config.getBudgetPercent()) {
+                return false;
+            }
+            hedges.incrementAndGet();
+            return true;
+        }
+    }
+
+    public static class Config {
+        /** Hedges allowed per window, as a percentage of the route's requests. */
+        private double budgetPercent = 5;
+        private Duration budgetWindow = Duration.ofSeconds(10);
+        /** Bounds for the hedge delay; until enough latencies are recorded, maxDelay is used. */
+        private Duration minDelay = Duration.ofMillis(20);
+        private Duration maxDelay = Duration.ofSeconds(1);
+
+        public double getBudgetPercent() {
+            return budgetPercent;
+        }
+
+        public void setBudgetPercent(double budgetPercent) {
+            this.budgetPercent = budgetPercent;
+        }
+
+        public Duration getBudgetWindow() {
+            return budgetWindow;
+        }
+
+        public void setBudgetWindow(Duration budgetWindow) {
+            this.budgetWindow = budgetWindow;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.fitness.gateway;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the issuer's JWK set in memory and refreshes it in the background, so
+ * verifying a token never waits on the JWK endpoint. A token signed with a key
+ * that is not in the set yet triggers one extra refresh, at most once per
+ * {@code minRefreshGap} so unknown key ids cannot be used to hammer Keycloak.
+ * The gap counts from the last attempt, failed or not, so an unreachable or
+ * erroring JWK endpoint is not retried on every such token either.
+ */
+public class JwkSetRefresher implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(JwkSetRefresher.class);
+
+    private final WebClient webClient = WebClient.create();
+    private final String jwkSetUri;
+    private final Duration minRefreshGap;
+    private final AtomicReference<JWKSet> jwkSet = new AtomicReference<>(new JWKSet());
+    private final AtomicReference<Mono<JWKSet>> inFlight = new AtomicReference<>();
+    // start of the last fetch, whether or not it succeeded
+    private volatile Instant lastRefresh = Instant.EPOCH;
+    private final Disposable schedule;
+
+    public JwkSetRefresher(String jwkSetUri, Duration refreshInterval, Duration minRefreshGap) {
+        this.jwkSetUri = jwkSetUri;
+        this.minRefreshGap = minRefreshGap;
+        this.schedule = Flux.interval(Duration.ZERO, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh().onErrorResume(e -> {
+                    log.warn("Failed to refresh JWK set from {}: {}", jwkSetUri, e.getMessage());
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    /**
+     * Key source for {@code NimbusReactiveJwtDecoder.withJwkSource}.
+     */
+    public Flux<JWK> select(SignedJWT jwt) {
+        JWKSelector selector = new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader()));
+        List<JWK> keys = selector.select(jwkSet.get());
+        if (!keys.isEmpty()) {
+            return Flux.fromIterable(keys);
+        }
+        if (inFlight.get() == null && Instant.now().isBefore(lastRefresh.plus(minRefreshGap))) {
+            return Flux.empty();
+        }
+        // signed with a key we have not seen: the issuer probably rotated since the last refresh
+        return refresh().flatMapIterable(selector::select);
+    }
+
+    private Mono<JWKSet> refresh() {
+        Mono<JWKSet> fetch = inFlight.get();
+        if (fetch != null) {
+            return fetch;
+        }
+        Mono<JWKSet> created = webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .handle((String body, SynchronousSink<JWKSet> sink) -> {
+                    try {
+                        sink.next(JWKSet.parse(body));
+                    } catch (ParseException e) {
+                        sink.error(e);
+                    }
+                })
+                .doOnSubscribe(subscription -> lastRefresh = Instant.now())
+                .doOnNext(keys -> {
+                    jwkSet.set(keys);
+                    log.debug("Loaded {} keys from {}", keys.getKeys().size(), jwkSetUri);
+                })
+                .doFinally(signal -> inFlight.set(null))
+                .cache();
+        return inFlight.compareAndSet(null, created) ? created : Objects.requireNonNullElse(inFlight.get(), created);
+    }
+
+    @Override
+    public void destroy() {
+        schedule.dispose();
+    }
+}
@@ -1,5 +1,150 @@
 package com.fitness.gateway;
 
-public class KeycloakUserSyncFilter {
-    
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the Keycloak subject of the already-validated JWT to a userservice user,
+ * registering the user the first time the subject is seen, and forwards the
+ * user id downstream as {@code X-User-ID}, signed by {@link GatewaySigner}.
+ * Any {@code X-User-ID} or signature sent by the client is removed.
+ *
+ * <p>Users are keyed on the subject. An existing account is only matched by
+ * email, and linked to the subject, when Keycloak has verified that email;
+ * tokens without {@code email_verified} are not provisioned at all.
+ */
+@Component
+public class KeycloakUserSyncFilter implements GlobalFilter, Ordered {
+    private static final Logger log = LoggerFactory.getLogger(KeycloakUserSyncFilter.class);
+
+    public static final String USER_ID_HEADER = "X-User-ID";
+
+    private final WebClient userServiceWebClient;
+    private final GatewaySigner gatewaySigner;
+    private final Duration provisionTimeout;
+
+    // subject -> userservice id for users already provisioned, least recently seen evicted first
+    private final Map<String, String> knownSubjects;
+    // one registration call per subject, however many of its requests arrive at once
+    private final Map<String, Mono<String>> provisioning = new ConcurrentHashMap<>();
+
+    public KeycloakUserSyncFilter(WebClient userServiceWebClient, GatewaySigner gatewaySigner,
+                                  @Value("${gateway.user-sync.max-known-subjects:100000}") int maxKnownSubjects,
+                                  @Value("${gateway.user-sync.provision-timeout:5s}") Duration provisionTimeout) {
+        this.userServiceWebClient = userServiceWebClient;
+        this.gatewaySigner = gatewaySigner;
+        this.provisionTimeout = provisionTimeout;
+        this.knownSubjects = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxKnownSubjects;
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerWebExchange stripped = exchange.mutate()
+                .request(request -> request.headers(headers -> {
+                    headers.remove(USER_ID_HEADER);
+                    headers.remove(GatewaySigner.HEADER);
+                }))
+                .build();
+        return exchange.getPrincipal()
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .map(principal -> ((JwtAuthenticationToken) principal).getToken())
+                .flatMap(this::resolveUserId)
+                .map(userId -> stripped.mutate()
+                        .request(request -> request.headers(headers -> {
+                            headers.set(USER_ID_HEADER, userId);
+                            gatewaySigner.sign(headers, GatewaySigner.USER_ID, userId);
+                        }))
+                        .build())
+                .defaultIfEmpty(stripped)
+                .flatMap(chain::filter);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+
+    /**
+     * The userservice id for the token's subject, provisioning the user if needed;
+     * empty if the user could not be provisioned.
+     */
+    public Mono<String> resolveUserId(Jwt jwt) {
+        String subject = jwt.getSubject();
+        if (subject == null) {
+            return Mono.empty();
+        }
+        String known = knownSubjects.get(subject);
+        if (known != null) {
+            return Mono.just(known);
+        }
+        return provisioning.computeIfAbsent(subject, key -> provision(jwt)
+                .doOnNext(userId -> knownSubjects.put(key, userId))
+                .doFinally(signal -> provisioning.remove(key))
+                .cache());
+    }
+
+    /**
+     * Registers the user in userservice under the token's subject. userservice
+     * returns the user already linked to the subject, or links the account
+     * registered with the same email, which is why the email must be verified.
+     * On failure the request continues without {@code X-User-ID} and downstream
+     * services fall back to validating the user themselves.
+     */
+    private Mono<String> provision(Jwt jwt) {
+        String email = jwt.getClaimAsString("email");
+        if (email == null) {
+            log.warn("Token for subject {} has no email claim, cannot provision user", jwt.getSubject());
+            return Mono.empty();
+        }
+        if (!Boolean.TRUE.equals(jwt.getClaimAsBoolean("email_verified"))) {
+            // anyone can put someone else's address on an unverified Keycloak account
+            log.warn("Email of subject {} is not verified, not provisioning user", jwt.getSubject());
+            return Mono.empty();
+        }
+        Map<String, String> registerRequest = new HashMap<>();
+        registerRequest.put("keycloakId", jwt.getSubject());
+        registerRequest.put("email", email);
+        // Keycloak owns the credentials; the local password is never used to log in
+        registerRequest.put("password", UUID.randomUUID().toString());
+        registerRequest.put("firstName", jwt.getClaimAsString("given_name"));
+        registerRequest.put("lastName", jwt.getClaimAsString("family_name"));
+
+        log.info("Provisioning user for subject {}", jwt.getSubject());
+        return userServiceWebClient.post()
+                .uri("/api/users/register")
+                .headers(headers -> gatewaySigner.sign(headers, GatewaySigner.KEYCLOAK_ID, jwt.getSubject()))
+                .bodyValue(registerRequest)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .timeout(provisionTimeout)
+                .mapNotNull(user -> (String) user.get("id"))
+                .onErrorResume(e -> {
+                    log.error("Failed to provision user for subject {}: {}", jwt.getSubject(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
 }
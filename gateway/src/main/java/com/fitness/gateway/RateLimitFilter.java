@@ -0,0 +1,141 @@
+package com.fitness.gateway;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory token bucket per caller and route. Callers are identified by the
+ * {@code sub} claim of their JWT, or by remote address on unauthenticated
+ * routes. Each bucket is updated with a compare-and-set loop, so concurrent
+ * requests never block on a lock. Limits are local to this gateway instance.
+ *
+ * <p>Runs before {@link KeycloakUserSyncFilter}, so a throttled caller is
+ * turned away before any user provisioning call is made on its behalf.
+ */
+@Component
+public class RateLimitFilter implements GlobalFilter, Ordered, DisposableBean {
+    static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private record BucketKey(String caller, String routeId) {
+    }
+
+    private record BucketState(double tokens, long updatedNanos) {
+    }
+
+    /** Outcome of one take: whether it was allowed, what is left, and how long until a token is back. */
+    record Decision(boolean allowed, long remaining, long retryAfterSeconds) {
+    }
+
+    private static final class Bucket {
+        private final AtomicReference<BucketState> state;
+
+        Bucket(int capacity, long now) {
+            state = new AtomicReference<>(new BucketState(capacity, now));
+        }
+
+        Decision take(RateLimitProperties.Limit limit, long now) {
+            while (true) {
+                BucketState current = state.get();
+                double refilled = Math.min(limit.getCapacity(),
+                        current.tokens() + (now - current.updatedNanos()) / 1e9 * limit.getRefillPerSecond());
+                boolean allowed = refilled >= 1;
+                BucketState next = new BucketState(allowed ? refilled - 1 : refilled, Math.max(now, current.updatedNanos()));
+                if (state.compareAndSet(current, next)) {
+                    long retryAfter = allowed ? 0 : (long) Math.ceil((1 - refilled) / limit.getRefillPerSecond());
+                    return new Decision(allowed, (long) next.tokens(), retryAfter);
+                }
+            }
+        }
+
+        boolean idleSince(long cutoffNanos) {
+            return state.get().updatedNanos() < cutoffNanos;
+        }
+    }
+
+    private final RateLimitProperties properties;
+    private final Map<BucketKey, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Disposable eviction;
+
+    public RateLimitFilter(RateLimitProperties properties) {
+        this.properties = properties;
+        this.eviction = Flux.interval(properties.getIdleTimeout())
+                .subscribe(tick -> {
+                    long cutoff = System.nanoTime() - properties.getIdleTimeout().toNanos();
+                    buckets.values().removeIf(bucket -> bucket.idleSince(cutoff));
+                });
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null) {
+            return chain.filter(exchange);
+        }
+        RateLimitProperties.Limit limit = properties.limitFor(route.getId());
+        return caller(exchange)
+                .flatMap(caller -> {
+                    Decision decision = take(caller, route.getId(), System.nanoTime());
+
+                    HttpHeaders headers = exchange.getResponse().getHeaders();
+                    headers.set(LIMIT_HEADER, String.valueOf(limit.getCapacity()));
+                    headers.set(REMAINING_HEADER, String.valueOf(decision.remaining()));
+                    if (decision.allowed()) {
+                        return chain.filter(exchange);
+                    }
+                    headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, decision.retryAfterSeconds())));
+                    exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                    return exchange.getResponse().setComplete();
+                });
+    }
+
+    /** Takes a token from the caller's bucket for the route, creating a full bucket on first use. */
+    Decision take(String caller, String routeId, long nowNanos) {
+        RateLimitProperties.Limit limit = properties.limitFor(routeId);
+        return buckets
+                .computeIfAbsent(new BucketKey(caller, routeId), key -> new Bucket(limit.getCapacity(), nowNanos))
+                .take(limit, nowNanos);
+    }
+
+    @Override
+    public int getOrder() {
+        // before KeycloakUserSyncFilter and anything else that does upstream work
+        return Ordered.HIGHEST_PRECEDENCE + 5;
+    }
+
+    @Override
+    public void destroy() {
+        eviction.dispose();
+    }
+
+    /** The JWT subject of the caller, or its remote address when the request is not authenticated. */
+    static Mono<String> caller(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+                .map(principal -> principal instanceof JwtAuthenticationToken jwt && jwt.getToken().getSubject() != null
+                        ? jwt.getToken().getSubject()
+                        : principal.getName())
+                .switchIfEmpty(Mono.fromSupplier(() -> remoteAddress(exchange)));
+    }
+
+    private static String remoteAddress(ServerWebExchange exchange) {
+        InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        return address != null && address.getAddress() != null ? address.getAddress().getHostAddress() : "unknown";
+    }
+}
@@ -0,0 +1,137 @@
+package com.fitness.gateway;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends only one of several identical concurrent GETs upstream. Requests match
+ * when they have the same subject, route and path including the query, so
+ * requests from different users are never merged. The first request goes
+ * upstream and the others wait for its buffered response.
+ * A waiter whose leader is slower than {@code max-wait}, or whose response was
+ * too large to buffer, sends its own request instead.
+ */
+@Component
+public class RequestCoalescingFilter implements GlobalFilter, Ordered {
+    static final String COALESCED_HEADER = "X-Coalesced";
+
+    private record Key(String subject, String routeId, String pathAndQuery) {
+    }
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    private final boolean enabled;
+    private final Duration maxWait;
+    private final long maxBodyBytes;
+    private final int maxInFlight;
+    private final Map<Key, Sinks.One<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public RequestCoalescingFilter(@Value("${gateway.coalescing.enabled:true}") boolean enabled,
+                                   @Value("${gateway.coalescing.max-wait:2s}") Duration maxWait,
+                                   @Value("${gateway.coalescing.max-body-size:256KB}") DataSize maxBodySize,
+                                   @Value("${gateway.coalescing.max-in-flight:10000}") int maxInFlight) {
+        this.enabled = enabled;
+        this.maxWait = maxWait;
+        this.maxBodyBytes = maxBodySize.toBytes();
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        ServerHttpRequest request = exchange.getRequest();
+        if (!enabled || route == null || request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty("")
+                .flatMap(subject -> {
+                    if (subject.isEmpty()) {
+                        return chain.filter(exchange);
+                    }
+                    Key key = new Key(subject, route.getId(), request.getURI().getRawPath()
+                            + (request.getURI().getRawQuery() != null ? "?" + request.getURI().getRawQuery() : ""));
+                    Sinks.One<SharedResponse> leader = inFlight.get(key);
+                    if (leader != null) {
+                        return follow(exchange, chain, leader);
+                    }
+                    if (inFlight.size() >= maxInFlight) {
+                        return chain.filter(exchange);
+                    }
+                    Sinks.One<SharedResponse> sink = Sinks.one();
+                    leader = inFlight.putIfAbsent(key, sink);
+                    if (leader != null) {
+                        return follow(exchange, chain, leader);
+                    }
+                    return lead(exchange, chain, key, sink);
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        // after the response cache: only cache misses are worth coalescing
+        return Ordered.HIGHEST_PRECEDENCE + 40;
+    }
+
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, Key key, Sinks.One<SharedResponse> sink) {
+        CapturingResponseDecorator sharing = new CapturingResponseDecorator(exchange.getResponse(), maxBodyBytes) {
+            @Override
+            protected boolean shouldCapture() {
+                return !getHeaders().containsKey(HttpHeaders.SET_COOKIE);
+            }
+
+            @Override
+            protected void captured(byte[] body) {
+                // followers keep their own rate-limit and X-Cache headers
+                sink.tryEmitValue(new SharedResponse(getStatusCode(), replayableHeaders(), body));
+            }
+        };
+        return chain.filter(exchange.mutate().response(sharing).build())
+                .doFinally(signal -> {
+                    inFlight.remove(key, sink);
+                    // nothing shareable (error, cancel, oversized body): waiters go upstream themselves
+                    sink.tryEmitEmpty();
+                });
+    }
+
+    private Mono<Void> follow(ServerWebExchange exchange, GatewayFilterChain chain, Sinks.One<SharedResponse> leader) {
+        return leader.asMono()
+                .timeout(maxWait)
+                .map(Optional::of)
+                .onErrorResume(TimeoutException.class, e -> Mono.just(Optional.empty()))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(shared -> shared.isPresent()
+                        ? write(exchange.getResponse(), shared.get())
+                        : chain.filter(exchange));
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, SharedResponse shared) {
+        response.setStatusCode(shared.status());
+        response.getHeaders().putAll(shared.headers());
+        response.getHeaders().set(COALESCED_HEADER, "true");
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(shared.body())));
+    }
+}
@@ -0,0 +1,118 @@
+package com.fitness.gateway;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Size-bounded LRU store behind {@link ResponseCacheFilter}. Entries are
+ * charged by body size, and the least recently used ones are evicted once the
+ * total passes {@code gateway.response-cache.max-size}.
+ */
+@Component
+public class ResponseCache {
+
+    public record Key(String routeId, String subject, String pathAndQuery) {
+    }
+
+    public record Entry(HttpStatusCode status, HttpHeaders headers, byte[] body, Instant expiresAt) {
+    }
+
+    private final ResponseCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+    private long totalBytes;
+
+    public ResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("gateway.response.cache.size", this, cache -> cache.sizeInBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public synchronized Entry get(Key key, Instant now) {
+        Entry entry = entries.get(key);
+        if (entry != null && !now.isBefore(entry.expiresAt())) {
+            remove(key);
+            entry = null;
+        }
+        counters(key.routeId())[entry != null ? 0 : 1].increment();
+        return entry;
+    }
+
+    public synchronized void put(Key key, Entry entry) {
+        remove(key);
+        entries.put(key, entry);
+        totalBytes += entry.body().length;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalBytes > properties.getMaxSize().toBytes() && eldest.hasNext()) {
+            totalBytes -= eldest.next().body().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes every entry for the route and subject; a null argument matches anything.
+     */
+    public synchronized int purge(String routeId, String subject) {
+        Predicate<Key> matches = key -> (routeId == null || routeId.equals(key.routeId()))
+                && (subject == null || subject.equals(key.subject()));
+        int removed = 0;
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            if (matches.test(entry.getKey())) {
+                totalBytes -= entry.getValue().body().length;
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized long sizeInBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int entryCount() {
+        return entries.size();
+    }
+
+    /** Hit rate per route since startup. */
+    public Map<String, Double> hitRates() {
+        Map<String, Double> rates = new TreeMap<>();
+        counters.forEach((routeId, routeCounters) -> {
+            double hits = routeCounters[0].count();
+            double total = hits + routeCounters[1].count();
+            rates.put(routeId, total == 0 ? 0 : hits / total);
+        });
+        return rates;
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.body().length;
+        }
+    }
+
+    private Counter[] counters(String routeId) {
+        return counters.computeIfAbsent(routeId, id -> new Counter[]{
+                Counter.builder("gateway.response.cache.requests").tag("route", id).tag("result", "hit").register(meterRegistry),
+                Counter.builder("gateway.response.cache.requests").tag("route", id).tag("result", "miss").register(meterRegistry)
+        });
+    }
+}
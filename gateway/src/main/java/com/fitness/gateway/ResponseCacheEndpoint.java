@@ -0,0 +1,39 @@
+package com.fitness.gateway;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/responsecache}: GET shows size and per-route hit rates,
+ * DELETE purges everything or, with {@code route} and/or {@code subject}
+ * query parameters, just the matching entries.
+ */
+@Component
+@Endpoint(id = "responsecache")
+public class ResponseCacheEndpoint {
+    private final ResponseCache responseCache;
+
+    public ResponseCacheEndpoint(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", responseCache.entryCount());
+        stats.put("bytes", responseCache.sizeInBytes());
+        stats.put("hitRates", responseCache.hitRates());
+        return stats;
+    }
+
+    @DeleteOperation
+    public Map<String, Integer> purge(@Nullable String route, @Nullable String subject) {
+        return Map.of("purged", responseCache.purge(route, subject));
+    }
+}
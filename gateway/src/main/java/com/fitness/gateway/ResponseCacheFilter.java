@@ -0,0 +1,147 @@
+package com.fitness.gateway;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves repeated authenticated GETs from {@link ResponseCache}, keyed by route,
+ * subject and path, on the routes listed under {@code gateway.response-cache.routes}.
+ * Only 200 responses are stored. A {@code no-store}, {@code no-cache} or
+ * {@code Set-Cookie} response is never stored, and a shorter {@code max-age}
+ * overrides the route TTL. A client sending {@code Cache-Control: no-cache}
+ * bypasses the cache. Any non-GET request drops the caller's entries for that
+ * route, so a user's writes show up in their next read.
+ */
+@Component
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+    static final String CACHE_HEADER = "X-Cache";
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final ResponseCacheProperties properties;
+    private final ResponseCache responseCache;
+
+    public ResponseCacheFilter(ResponseCacheProperties properties, ResponseCache responseCache) {
+        this.properties = properties;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null || !properties.getRoutes().containsKey(route.getId())) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .defaultIfEmpty("")
+                .flatMap(subject -> {
+                    if (subject.isEmpty()) {
+                        // unauthenticated requests are never cached
+                        return chain.filter(exchange);
+                    }
+                    if (request.getMethod() != HttpMethod.GET) {
+                        responseCache.purge(route.getId(), subject);
+                        return chain.filter(exchange);
+                    }
+                    ResponseCache.Key key = new ResponseCache.Key(route.getId(), subject,
+                            request.getURI().getRawPath() + (request.getURI().getRawQuery() != null ? "?" + request.getURI().getRawQuery() : ""));
+                    if (!bypassRequested(request)) {
+                        ResponseCache.Entry cached = responseCache.get(key, Instant.now());
+                        if (cached != null) {
+                            return writeCached(exchange.getResponse(), cached);
+                        }
+                    }
+                    exchange.getResponse().getHeaders().set(CACHE_HEADER, "MISS");
+                    return chain.filter(exchange.mutate()
+                            .response(new CachingResponse(exchange.getResponse(), key, properties.getRoutes().get(route.getId())))
+                            .build());
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        // after rate limiting, so cache hits still count against the caller's limit
+        return Ordered.HIGHEST_PRECEDENCE + 30;
+    }
+
+    private boolean bypassRequested(ServerHttpRequest request) {
+        String cacheControl = request.getHeaders().getCacheControl();
+        return cacheControl != null && (cacheControl.contains("no-cache") || cacheControl.contains("no-store"));
+    }
+
+    private Mono<Void> writeCached(ServerHttpResponse response, ResponseCache.Entry cached) {
+        response.setStatusCode(cached.status());
+        response.getHeaders().putAll(cached.headers());
+        response.getHeaders().set(CACHE_HEADER, "HIT");
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body())));
+    }
+
+    /**
+     * Stores the response once its body has been sent, if its status and
+     * Cache-Control allow it.
+     */
+    private class CachingResponse extends CapturingResponseDecorator {
+        private final ResponseCache.Key key;
+        private final Duration routeTtl;
+        private Duration ttl;
+
+        CachingResponse(ServerHttpResponse delegate, ResponseCache.Key key, Duration routeTtl) {
+            super(delegate, properties.getMaxEntrySize().toBytes());
+            this.key = key;
+            this.routeTtl = routeTtl;
+        }
+
+        @Override
+        protected boolean shouldCapture() {
+            ttl = ttl();
+            return ttl != null;
+        }
+
+        @Override
+        protected void captured(byte[] body) {
+            // without the rate-limit and X-Cache headers, so a hit carries the current request's values
+            responseCache.put(key, new ResponseCache.Entry(getStatusCode(), replayableHeaders(), body,
+                    Instant.now().plus(ttl)));
+        }
+
+        /** How long this response may be cached, or null if it must not be. */
+        private Duration ttl() {
+            if (getStatusCode() == null || getStatusCode().value() != HttpStatus.OK.value()
+                    || getHeaders().containsKey(HttpHeaders.SET_COOKIE)) {
+                return null;
+            }
+            String cacheControl = getHeaders().getCacheControl();
+            if (cacheControl == null) {
+                return routeTtl;
+            }
+            if (cacheControl.contains("no-store") || cacheControl.contains("no-cache")) {
+                return null;
+            }
+            Matcher maxAge = MAX_AGE.matcher(cacheControl);
+            if (maxAge.find()) {
+                Duration serviceTtl = Duration.ofSeconds(Long.parseLong(maxAge.group(1)));
+                return serviceTtl.isZero() ? null : (serviceTtl.compareTo(routeTtl) < 0 ? serviceTtl : routeTtl);
+            }
+            return routeTtl;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.fitness.gateway;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * GET responses are cached only on routes listed in {@code routes}, each with
+ * its own TTL. A shorter {@code max-age} from the service wins.
+ */
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public class ResponseCacheProperties {
+    private boolean enabled = true;
+    private Map<String, Duration> routes = new HashMap<>();
+    /** Total size of cached bodies; least recently used entries are evicted beyond it. */
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+    /** Larger responses are passed through without being cached. */
+    private DataSize maxEntrySize = DataSize.ofKilobytes(256);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Map<String, Duration> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, Duration> routes) {
+        this.routes = routes;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public DataSize getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(DataSize maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+}
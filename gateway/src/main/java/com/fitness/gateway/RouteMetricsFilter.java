@@ -0,0 +1,97 @@
+package com.fitness.gateway;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Records {@code gateway.route.latency} as a percentile histogram tagged by
+ * route, status and upstream instance. Requests over the slow threshold also
+ * go to {@link SlowRequestLog}, under the path pattern the route matched rather
+ * than the request path, so ids and other path parameters are never kept. It
+ * runs first, so the time includes the other gateway filters. A request that
+ * fails is recorded with the status the error handler will answer with, since
+ * the response has none yet at that point. Upstream connect time comes from
+ * Reactor Netty's {@code reactor.netty.http.client.connect.time}, for hedged
+ * calls too; see {@link GatewayHttpClientConfig}.
+ */
+@Component
+public class RouteMetricsFilter implements GlobalFilter, Ordered {
+    private final MeterRegistry meterRegistry;
+    private final SlowRequestLog slowRequestLog;
+
+    public RouteMetricsFilter(MeterRegistry meterRegistry, SlowRequestLog slowRequestLog) {
+        this.meterRegistry = meterRegistry;
+        this.slowRequestLog = slowRequestLog;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(done -> record(exchange, System.nanoTime() - start, null))
+                .doOnError(error -> record(exchange, System.nanoTime() - start, error))
+                .doOnCancel(() -> record(exchange, System.nanoTime() - start, null));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private void record(ServerWebExchange exchange, long nanos, Throwable error) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "none";
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        int statusCode = status != null ? status.value() : 0;
+        if (error != null && !exchange.getResponse().isCommitted()) {
+            statusCode = errorStatus(error);
+        }
+        // set by the load balancer filter once an instance is chosen; absent for cache hits and rejected requests
+        URI upstream = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        String instance = upstream != null && !"lb".equals(upstream.getScheme())
+                ? upstream.getHost() + ":" + upstream.getPort() : "none";
+
+        Timer.builder("gateway.route.latency")
+                .tag("route", routeId)
+                .tag("status", String.valueOf(statusCode))
+                .tag("instance", instance)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofNanos(nanos));
+
+        long millis = nanos / 1_000_000;
+        if (millis >= slowRequestLog.thresholdMs()) {
+            // set by the Path predicate, e.g. /api/users/**
+            String pathPattern = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_PREDICATE_MATCHED_PATH_ATTR);
+            slowRequestLog.offer(new SlowRequestLog.SlowRequest(Instant.now(),
+                    exchange.getRequest().getMethod().name(), pathPattern != null ? pathPattern : "none",
+                    routeId, statusCode, instance, millis));
+        }
+    }
+
+    /** The status the error handler answers with, the same way Boot's DefaultErrorAttributes picks it. */
+    static int errorStatus(Throwable error) {
+        if (error instanceof ErrorResponse response) {
+            return response.getStatusCode().value();
+        }
+        ResponseStatus annotated = AnnotatedElementUtils.findMergedAnnotation(error.getClass(), ResponseStatus.class);
+        return annotated != null ? annotated.code().value() : HttpStatus.INTERNAL_SERVER_ERROR.value();
+    }
+}
@@ -1,22 +1,58 @@
 package com.fitness.gateway;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverterAdapter;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
 @Configuration
 @EnableWebFluxSecurity
 public class SecurityConfig {
 
+    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri:http://localhost:8181/realms/master/protocol/openid-connect/certs}")
+    private String jwkSetUri;
+
+    @Value("${gateway.jwt.jwk-refresh-interval:5m}")
+    private Duration jwkRefreshInterval;
+
+    @Value("${gateway.jwt.jwk-min-refresh-gap:30s}")
+    private Duration jwkMinRefreshGap;
+
+    @Value("${gateway.jwt.cache.max-entries:10000}")
+    private int jwtCacheMaxEntries;
+
+    @Value("${gateway.jwt.cache.max-ttl:5m}")
+    private Duration jwtCacheMaxTtl;
+
+    @Value("${gateway.security.admin-role:admin}")
+    private String adminRole;
+
+    @Bean
+    public JwkSetRefresher jwkSetRefresher() {
+        return new JwkSetRefresher(jwkSetUri, jwkRefreshInterval, jwkMinRefreshGap);
+    }
+
     @Bean
     public ReactiveJwtDecoder jwtDecoder() {
-        return NimbusReactiveJwtDecoder
-                .withJwkSetUri("http://localhost:8181/realms/master/protocol/openid-connect/certs")
+        ReactiveJwtDecoder verifying = NimbusReactiveJwtDecoder
+                .withJwkSource(jwkSetRefresher()::select)
                 .build();
+        return new CachingReactiveJwtDecoder(verifying, jwtCacheMaxEntries, jwtCacheMaxTtl, Clock.systemUTC());
     }
 
     @Bean
@@ -25,11 +61,34 @@ public class SecurityConfig {
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
                 .authorizeExchange(exchange -> exchange
                         // Allow public access to registration and health endpoints
-                        .pathMatchers("/api/users/register", "/api/users/health", "/actuator/**").permitAll()
+                        .pathMatchers("/api/users/register", "/api/users/health").permitAll()
+                        .pathMatchers("/actuator/health/**", "/actuator/info").permitAll()
+                        // the other endpoints expose request paths and can purge caches
+                        .pathMatchers("/actuator/**").hasRole(adminRole)
                         // Require authentication for all other requests
                         .anyExchange().authenticated())
                 .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwtDecoder(jwtDecoder())))
+                        .jwt(jwt -> jwt
+                                .jwtDecoder(jwtDecoder())
+                                .jwtAuthenticationConverter(realmRoleConverter())))
                 .build();
     }
+
+    /**
+     * Keeps the default scope authorities and adds Keycloak realm roles
+     * ({@code realm_access.roles}) as {@code ROLE_} authorities.
+     */
+    private ReactiveJwtAuthenticationConverterAdapter realmRoleConverter() {
+        JwtGrantedAuthoritiesConverter scopes = new JwtGrantedAuthoritiesConverter();
+        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+        converter.setJwtGrantedAuthoritiesConverter(jwt -> {
+            Collection<GrantedAuthority> authorities = new ArrayList<>(scopes.convert(jwt));
+            Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
+            if (realmAccess != null && realmAccess.get("roles") instanceof Collection<?> roles) {
+                roles.forEach(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role)));
+            }
+            return authorities;
+        });
+        return new ReactiveJwtAuthenticationConverterAdapter(converter);
+    }
 }
@@ -0,0 +1,30 @@
+package com.fitness.gateway;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/slowrequests}: the most recent requests over the slow
+ * threshold, slowest first; see {@link SlowRequestLog}.
+ */
+@Component
+@Endpoint(id = "slowrequests")
+public class SlowRequestEndpoint {
+    private final SlowRequestLog slowRequestLog;
+
+    public SlowRequestEndpoint(SlowRequestLog slowRequestLog) {
+        this.slowRequestLog = slowRequestLog;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowRequests() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("thresholdMs", slowRequestLog.thresholdMs());
+        result.put("requests", slowRequestLog.slowest());
+        return result;
+    }
+}
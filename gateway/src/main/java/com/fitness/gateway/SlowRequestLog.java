@@ -0,0 +1,62 @@
+package com.fitness.gateway;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of the most recent requests slower than the threshold.
+ * Writers claim a slot with one atomic increment and never block, and the
+ * oldest entries are overwritten once the ring is full, however slow they
+ * were. This keeps the last {@code capacity} slow requests, not the slowest
+ * ever seen: a view of what is slow now, which one old outlier cannot crowd
+ * out. For the all-time tail, use the {@code gateway.route.latency} histogram.
+ */
+@Component
+public class SlowRequestLog {
+
+    public record SlowRequest(Instant at, String method, String pathPattern, String route, int status,
+                              String instance, long durationMs) {
+    }
+
+    private final long thresholdMs;
+    private final AtomicReferenceArray<SlowRequest> ring;
+    private final AtomicLong next = new AtomicLong();
+
+    public SlowRequestLog(@Value("${gateway.slow-requests.threshold:500ms}") Duration threshold,
+                          @Value("${gateway.slow-requests.capacity:256}") int capacity) {
+        this.thresholdMs = threshold.toMillis();
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void offer(SlowRequest request) {
+        if (request.durationMs() < thresholdMs) {
+            return;
+        }
+        ring.set((int) (next.getAndIncrement() % ring.length()), request);
+    }
+
+    /** The most recent slow requests, sorted slowest first. */
+    public List<SlowRequest> slowest() {
+        List<SlowRequest> requests = new ArrayList<>(ring.length());
+        for (int i = 0; i < ring.length(); i++) {
+            SlowRequest request = ring.get(i);
+            if (request != null) {
+                requests.add(request);
+            }
+        }
+        requests.sort(Comparator.comparingLong(SlowRequest::durationMs).reversed());
+        return requests;
+    }
+
+    public long thresholdMs() {
+        return thresholdMs;
+    }
+}
@@ -0,0 +1,25 @@
+package com.fitness.gateway;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+@Configuration
+public class WebClientConfig {
+
+    @Bean
+    @LoadBalanced
+    public WebClient.Builder loadBalancedWebClientBuilder(ObservationRegistry observationRegistry) {
+        // observed, so calls made while handling a request join its trace
+        return WebClient.builder().observationRegistry(observationRegistry);
+    }
+
+    @Bean
+    public WebClient userServiceWebClient(WebClient.Builder loadBalancedWebClientBuilder) {
+        return loadBalancedWebClientBuilder
+                .baseUrl("http://user-service")
+                .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.fitness.gateway;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingReactiveJwtDecoderTests {
+
+	private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+	private final AtomicInteger verifications = new AtomicInteger();
+	private final ReactiveJwtDecoder verifying = token -> {
+		verifications.incrementAndGet();
+		return Mono.just(Jwt.withTokenValue(token)
+				.header("alg", "RS256")
+				.subject("subject")
+				.issuedAt(clock.instant())
+				.expiresAt(clock.instant().plusSeconds(10))
+				.build());
+	};
+
+	@Test
+	void reusedTokenIsVerifiedOnce() {
+		CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifying, 10, Duration.ofMinutes(5), clock);
+
+		decoder.decode("a").block();
+		decoder.decode("a").block();
+
+		assertThat(verifications).hasValue(1);
+	}
+
+	@Test
+	void expiredTokenGoesBackToTheDelegate() {
+		CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifying, 10, Duration.ofMinutes(5), clock);
+
+		decoder.decode("a").block();
+		clock.advance(Duration.ofSeconds(10));
+		decoder.decode("a").block();
+
+		assertThat(verifications).hasValue(2);
+	}
+
+	@Test
+	void fullCacheSweepsExpiredEntriesToMakeRoom() {
+		CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifying, 1, Duration.ofMinutes(5), clock);
+
+		decoder.decode("a").block();
+		clock.advance(Duration.ofSeconds(11));
+		decoder.decode("b").block();
+		decoder.decode("b").block();
+
+		assertThat(verifications).hasValue(2);
+	}
+
+	@Test
+	void cacheFullOfLiveTokensDoesNotTakeNewOnes() {
+		CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifying, 1, Duration.ofMinutes(5), clock);
+
+		decoder.decode("a").block();
+		decoder.decode("b").block();
+		decoder.decode("b").block();
+		decoder.decode("a").block();
+
+		assertThat(verifications).hasValue(3);
+	}
+
+	@Test
+	void fullCacheIsSweptAtMostOncePerInterval() {
+		CachingReactiveJwtDecoder decoder = new CachingReactiveJwtDecoder(verifying, 1, Duration.ofMinutes(5), clock);
+
+		decoder.decode("a").block();
+		clock.advance(Duration.ofMillis(9_500));
+		// sweeps while "a" is still live
+		decoder.decode("b").block();
+		clock.advance(Duration.ofMillis(500));
+		// "a" has expired, but the next sweep is not due yet
+		decoder.decode("c").block();
+		decoder.decode("c").block();
+		assertThat(verifications).hasValue(4);
+
+		clock.advance(CachingReactiveJwtDecoder.SWEEP_INTERVAL);
+		decoder.decode("c").block();
+		decoder.decode("c").block();
+		assertThat(verifications).hasValue(5);
+	}
+
+	private static final class MutableClock extends Clock {
+		private Instant now;
+
+		MutableClock(Instant now) {
+			this.now = now;
+		}
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+	}
+}
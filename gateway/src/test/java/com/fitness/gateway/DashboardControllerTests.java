@@ -0,0 +1,121 @@
+package com.fitness.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DashboardControllerTests {
+
+	private final KeycloakUserSyncFilter userSync = mock(KeycloakUserSyncFilter.class);
+
+	DashboardControllerTests() {
+		when(userSync.resolveUserId(any())).thenReturn(Mono.just("user-1"));
+	}
+
+	@Test
+	void allLegsAnsweringGiveACompleteDashboard() {
+		DashboardController controller = controller(request -> ok("{\"leg\":\"" + request.url().getHost() + "\"}"));
+
+		Map<String, Object> dashboard = controller.dashboard(jwt()).block().getBody();
+
+		assertThat(dashboard).containsEntry("userId", "user-1").containsEntry("partial", false);
+		assertThat(dashboard.get("unavailable")).asInstanceOf(InstanceOfAssertFactories.LIST).isEmpty();
+		assertThat(((JsonNode) dashboard.get("activities")).get("leg").asText()).isEqualTo("activity-service");
+	}
+
+	@Test
+	void failedAndSlowLegsAreReportedAsUnavailable() {
+		DashboardController controller = controller(request -> switch (request.url().getHost()) {
+			case "user-service" -> ok("{\"id\":\"user-1\"}");
+			// never answers, so it runs into its timeout
+			case "activity-service" -> Mono.never();
+			default -> Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+		});
+
+		ResponseEntity<Map<String, Object>> response = controller.dashboard(jwt()).block(Duration.ofSeconds(5));
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		Map<String, Object> dashboard = response.getBody();
+		assertThat(dashboard).containsEntry("partial", true);
+		assertThat(dashboard.get("unavailable")).asInstanceOf(InstanceOfAssertFactories.LIST).containsExactly("activities", "recommendations");
+		assertThat(((JsonNode) dashboard.get("profile")).get("id").asText()).isEqualTo("user-1");
+		assertThat(dashboard.get("activities")).isNull();
+		assertThat(dashboard.get("recommendations")).isNull();
+	}
+
+	@Test
+	void legsCarryTheSignedUserId() {
+		ClientRequest[] seen = new ClientRequest[1];
+		DashboardController controller = new DashboardController(WebClient.builder().exchangeFunction(request -> {
+			if (request.url().getHost().equals("activity-service")) {
+				seen[0] = request;
+			}
+			return ok("{}");
+		}), userSync, new GatewaySigner("secret"));
+		timeouts(controller);
+
+		controller.dashboard(jwt()).block();
+
+		assertThat(seen[0].headers().getFirst(KeycloakUserSyncFilter.USER_ID_HEADER)).isEqualTo("user-1");
+		assertThat(seen[0].headers().getFirst(GatewaySigner.HEADER)).isNotBlank();
+	}
+
+	@Test
+	void unknownUserGets503() {
+		when(userSync.resolveUserId(any())).thenReturn(Mono.empty());
+		DashboardController controller = controller(request -> ok("{}"));
+
+		assertThat(controller.dashboard(jwt()).block().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	private DashboardController controller(ExchangeFunction upstream) {
+		DashboardController controller = new DashboardController(WebClient.builder().exchangeFunction(upstream),
+				userSync, new GatewaySigner(""));
+		timeouts(controller);
+		return controller;
+	}
+
+	private static void timeouts(DashboardController controller) {
+		ReflectionTestUtils.setField(controller, "profileTimeout", Duration.ofMillis(200));
+		ReflectionTestUtils.setField(controller, "activitiesTimeout", Duration.ofMillis(200));
+		ReflectionTestUtils.setField(controller, "recommendationsTimeout", Duration.ofMillis(200));
+		ReflectionTestUtils.setField(controller, "recentActivities", 10);
+		ReflectionTestUtils.setField(controller, "latestRecommendations", 5);
+	}
+
+	private static Mono<ClientResponse> ok(String json) {
+		return Mono.just(ClientResponse.create(HttpStatus.OK)
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.body(json)
+				.build());
+	}
+
+	private static Jwt jwt() {
+		return Jwt.withTokenValue("token")
+				.header("alg", "RS256")
+				.subject("kc-subject")
+				.issuedAt(Instant.now())
+				.expiresAt(Instant.now().plusSeconds(60))
+				.build();
+	}
+}
@@ -0,0 +1,312 @@
+package com.fitness.gateway;
+
+import com.fitness.loadbalancer.ExcludingRequestContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HedgeGatewayFilterFactoryTests {
+
+	private final HedgeGatewayFilterFactory.Config config = config();
+	private final HedgeGatewayFilterFactory.RouteState state =
+			new HedgeGatewayFilterFactory.RouteState("user-service", config, new SimpleMeterRegistry());
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final List<Upstream> upstreams = new ArrayList<>();
+	private final RecordingLifecycle lifecycle = new RecordingLifecycle();
+
+	@AfterEach
+	void stopUpstreams() {
+		upstreams.forEach(upstream -> upstream.server.disposeNow());
+	}
+
+	@Test
+	void hedgesStayWithinTheBudget() {
+		long now = System.nanoTime();
+		int granted = 0;
+		for (int i = 0; i < 100; i++) {
+			state.countRequest();
+			if (state.tryAcquireHedge(now)) {
+				granted++;
+			}
+		}
+
+		assertThat(granted).isEqualTo(5);
+	}
+
+	@Test
+	void firstHedgeNeedsEnoughRequestsToPayForIt() {
+		long now = System.nanoTime();
+		for (int i = 0; i < 19; i++) {
+			state.countRequest();
+			assertThat(state.tryAcquireHedge(now)).isFalse();
+		}
+		state.countRequest();
+
+		assertThat(state.tryAcquireHedge(now)).isTrue();
+		assertThat(state.tryAcquireHedge(now)).isFalse();
+	}
+
+	@Test
+	void budgetStartsOverEachWindow() {
+		long now = System.nanoTime();
+		for (int i = 0; i < 20; i++) {
+			state.countRequest();
+		}
+		assertThat(state.tryAcquireHedge(now)).isTrue();
+
+		long nextWindow = now + config.getBudgetWindow().toNanos() + 1;
+		// the requests of the old window no longer pay for hedges
+		assertThat(state.tryAcquireHedge(nextWindow)).isFalse();
+		for (int i = 0; i < 20; i++) {
+			state.countRequest();
+		}
+		assertThat(state.tryAcquireHedge(nextWindow)).isTrue();
+	}
+
+	@Test
+	void delayIsMaxDelayUntilLatenciesAreKnown() {
+		assertThat(state.hedgeDelay()).isEqualTo(config.getMaxDelay());
+	}
+
+	@Test
+	void delayFollowsTheRecentP95() {
+		for (int i = 0; i < 64; i++) {
+			state.record(Duration.ofMillis(i < 60 ? 10 : 100).toNanos());
+		}
+
+		assertThat(state.hedgeDelay()).isEqualTo(Duration.ofMillis(100));
+	}
+
+	@Test
+	void delayIsClampedToTheConfiguredBounds() {
+		for (int i = 0; i < 64; i++) {
+			state.record(Duration.ofMillis(1).toNanos());
+		}
+		assertThat(state.hedgeDelay()).isEqualTo(config.getMinDelay());
+
+		for (int i = 0; i < 512; i++) {
+			state.record(Duration.ofSeconds(5).toNanos());
+		}
+		assertThat(state.hedgeDelay()).isEqualTo(config.getMaxDelay());
+	}
+
+	@Test
+	void hopByHopHeadersAreNotForwarded() {
+		HttpHeaders upstream = new HttpHeaders();
+		upstream.set(HttpHeaders.CONTENT_TYPE, "application/json");
+		upstream.set(HttpHeaders.TRANSFER_ENCODING, "chunked");
+		upstream.set(HttpHeaders.CONNECTION, "keep-alive, X-Internal-Hop");
+		upstream.set("Keep-Alive", "timeout=5");
+		upstream.set("X-Internal-Hop", "1");
+
+		HttpHeaders forwarded = HedgeGatewayFilterFactory.endToEnd(upstream);
+
+		assertThat(forwarded.keySet()).containsExactly(HttpHeaders.CONTENT_TYPE);
+	}
+
+	@Test
+	void hedgeWinsOverASlowPrimaryAndTheLoserIsCancelled() throws InterruptedException {
+		Upstream primary = upstream("primary", Duration.ofSeconds(5), HttpResponseStatus.OK);
+		Upstream secondary = upstream("secondary", Duration.ZERO, HttpResponseStatus.OK);
+
+		ServerWebExchange exchange = hedge(primary, secondary, Duration.ofMillis(50));
+
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(body(exchange)).isEqualTo("secondary");
+		assertThat(primary.cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(lifecycle.completions).hasSize(2)
+				.allMatch(completion -> completion.status() == CompletionContext.Status.SUCCESS);
+		assertThat(meterRegistry.counter("gateway.hedge.requests", "route", "user-service", "outcome", "won").count())
+				.isEqualTo(1);
+		// the hedge went through the gateway's header filters like the primary
+		assertThat(secondary.forwardedHost).isEqualTo("gateway.test");
+	}
+
+	@Test
+	void fastPrimaryWinsWithoutAHedge() {
+		Upstream primary = upstream("primary", Duration.ZERO, HttpResponseStatus.OK);
+		Upstream secondary = upstream("secondary", Duration.ZERO, HttpResponseStatus.OK);
+
+		ServerWebExchange exchange = hedge(primary, secondary, Duration.ofSeconds(1));
+
+		assertThat(body(exchange)).isEqualTo("primary");
+		assertThat(secondary.requests).hasValue(0);
+		assertThat(lifecycle.completions).hasSize(1);
+		assertThat(primary.forwardedHost).isEqualTo("gateway.test");
+	}
+
+	@Test
+	void primaryFailingBeforeTheHedgeIsRetriedOnTheOtherInstance() {
+		Upstream primary = upstream("primary", Duration.ZERO, HttpResponseStatus.INTERNAL_SERVER_ERROR);
+		Upstream secondary = upstream("secondary", Duration.ZERO, HttpResponseStatus.OK);
+
+		ServerWebExchange exchange = hedge(primary, secondary, Duration.ofSeconds(1));
+
+		assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(body(exchange)).isEqualTo("secondary");
+		assertThat(primary.requests).hasValue(1);
+		assertThat(lifecycle.completions).extracting(CompletionContext::status)
+				.containsExactlyInAnyOrder(CompletionContext.Status.FAILED, CompletionContext.Status.SUCCESS);
+	}
+
+	@Test
+	void serverErrorOnBothInstancesIsReturnedWithoutAnotherTry() {
+		Upstream primary = upstream("primary", Duration.ofMillis(300), HttpResponseStatus.SERVICE_UNAVAILABLE);
+		Upstream secondary = upstream("secondary", Duration.ZERO, HttpResponseStatus.BAD_GATEWAY);
+
+		ServerWebExchange exchange = hedge(primary, secondary, Duration.ofMillis(50));
+
+		assertThat(exchange.getResponse().getStatusCode().is5xxServerError()).isTrue();
+		assertThat(primary.requests).hasValue(1);
+		assertThat(secondary.requests).hasValue(1);
+		assertThat(lifecycle.completions).hasSize(2)
+				.allMatch(completion -> completion.status() == CompletionContext.Status.FAILED);
+	}
+
+	/** Sends one GET through the filter, balanced over the two upstreams with {@code primary} picked first. */
+	private ServerWebExchange hedge(Upstream primary, Upstream secondary, Duration delay) {
+		HedgeGatewayFilterFactory.Config raceConfig = new HedgeGatewayFilterFactory.Config();
+		raceConfig.setBudgetPercent(100);
+		raceConfig.setMinDelay(delay);
+		raceConfig.setMaxDelay(delay);
+		ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/42"));
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+				.id("user-service")
+				.uri("lb://user-service")
+				.predicate(e -> true)
+				.build());
+
+		factory(primary.instance(), secondary.instance()).apply(raceConfig)
+				.filter(exchange, e -> Mono.error(new AssertionError("request was not hedged")))
+				.block(Duration.ofSeconds(10));
+		return exchange;
+	}
+
+	@SuppressWarnings("unchecked")
+	private HedgeGatewayFilterFactory factory(ServiceInstance primary, ServiceInstance secondary) {
+		ReactorServiceInstanceLoadBalancer loadBalancer = request -> Mono.just(new DefaultResponse(
+				request.getContext() instanceof ExcludingRequestContext ? secondary : primary));
+		LoadBalancerClientFactory clientFactory = mock(LoadBalancerClientFactory.class);
+		when(clientFactory.getInstance("user-service", ReactorServiceInstanceLoadBalancer.class))
+				.thenReturn(loadBalancer);
+		when(clientFactory.getInstances("user-service", LoadBalancerLifecycle.class))
+				.thenReturn(Map.of("recording", lifecycle));
+		HttpHeadersFilter forwarded = (input, exchange) -> {
+			HttpHeaders headers = new HttpHeaders();
+			headers.addAll(input);
+			headers.set("X-Forwarded-Host", "gateway.test");
+			return headers;
+		};
+		ObjectProvider<List<HttpHeadersFilter>> headersFilters = mock(ObjectProvider.class);
+		when(headersFilters.getIfAvailable(any())).thenReturn(List.of(forwarded));
+		return new HedgeGatewayFilterFactory(clientFactory, meterRegistry, ObservationRegistry.NOOP,
+				HttpClient.create(), new HttpClientProperties(), headersFilters);
+	}
+
+	private Upstream upstream(String name, Duration delay, HttpResponseStatus status) {
+		Upstream upstream = new Upstream(name, delay, status);
+		upstreams.add(upstream);
+		return upstream;
+	}
+
+	private static String body(ServerWebExchange exchange) {
+		return ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().block();
+	}
+
+	/** A service instance that answers {@code /api/users/42} with its name after a delay. */
+	private static class Upstream {
+		private final String name;
+		private final AtomicInteger requests = new AtomicInteger();
+		private final CountDownLatch cancelled = new CountDownLatch(1);
+		private final DisposableServer server;
+		private volatile String forwardedHost;
+
+		Upstream(String name, Duration delay, HttpResponseStatus status) {
+			this.name = name;
+			this.server = HttpServer.create()
+					.host("localhost")
+					.port(0)
+					.route(routes -> routes.get("/api/users/42", (request, response) -> {
+						requests.incrementAndGet();
+						forwardedHost = request.requestHeaders().get("X-Forwarded-Host");
+						return Mono.delay(delay)
+								.then(Mono.defer(() -> response.status(status).sendString(Mono.just(name)).then()))
+								// the gateway closed the connection before the answer was sent
+								.doOnCancel(cancelled::countDown);
+					}))
+					.bindNow();
+		}
+
+		ServiceInstance instance() {
+			return new DefaultServiceInstance(name, "user-service", server.host(), server.port(), false);
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static class RecordingLifecycle implements LoadBalancerLifecycle {
+		private final List<CompletionContext> completions = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void onStart(Request request) {
+		}
+
+		@Override
+		public void onStartRequest(Request request, Response lbResponse) {
+		}
+
+		@Override
+		public void onComplete(CompletionContext completionContext) {
+			completions.add(completionContext);
+		}
+	}
+
+	private static HedgeGatewayFilterFactory.Config config() {
+		HedgeGatewayFilterFactory.Config config = new HedgeGatewayFilterFactory.Config();
+		config.setBudgetPercent(5);
+		config.setMinDelay(Duration.ofMillis(20));
+		config.setMaxDelay(Duration.ofSeconds(1));
+		return config;
+	}
+}
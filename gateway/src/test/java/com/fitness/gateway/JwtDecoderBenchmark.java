@@ -0,0 +1,100 @@
+package com.fitness.gateway;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Requests per second through the gateway's JWT decoding, with and without
+ * {@link CachingReactiveJwtDecoder} in front of Nimbus RS256 verification.
+ * Clients reuse a pool of access tokens the way logged-in users do. Not a unit
+ * test; run it from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.mainClass=com.fitness.gateway.JwtDecoderBenchmark -Dexec.classpathScope=test}.
+ * Arguments: [threads] [distinct tokens] [seconds per run].
+ */
+public class JwtDecoderBenchmark {
+
+	private static final Duration WARMUP = Duration.ofSeconds(5);
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int distinctTokens = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+		Duration measured = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 15);
+
+		RSAKey key = new RSAKeyGenerator(2048).keyID("benchmark").generate();
+		List<String> tokens = new ArrayList<>(distinctTokens);
+		for (int i = 0; i < distinctTokens; i++) {
+			tokens.add(token(key, "user-" + i));
+		}
+		ReactiveJwtDecoder verifying = NimbusReactiveJwtDecoder.withPublicKey(key.toRSAPublicKey()).build();
+		ReactiveJwtDecoder caching = new CachingReactiveJwtDecoder(verifying, 10_000, Duration.ofMinutes(5),
+				Clock.systemUTC());
+
+		double uncached = run(verifying, tokens, threads, measured);
+		double cached = run(caching, tokens, threads, measured);
+
+		System.out.printf("%d threads, %d distinct tokens, %ds per run%n", threads, distinctTokens,
+				measured.toSeconds());
+		System.out.printf("%-10s %14s%n", "decoder", "decodes/sec");
+		System.out.printf("%-10s %14.0f%n", "nimbus", uncached);
+		System.out.printf("%-10s %14.0f%n", "caching", cached);
+		System.out.printf("speed-up: %.1fx%n", cached / uncached);
+	}
+
+	/** Decodes tokens round robin from every thread, first unmeasured for the warm-up, and returns decodes/sec. */
+	private static double run(ReactiveJwtDecoder decoder, List<String> tokens, int threads, Duration measured)
+			throws InterruptedException {
+		decodeFor(decoder, tokens, threads, WARMUP);
+		return decodeFor(decoder, tokens, threads, measured) / (double) measured.toSeconds();
+	}
+
+	private static long decodeFor(ReactiveJwtDecoder decoder, List<String> tokens, int threads, Duration duration)
+			throws InterruptedException {
+		LongAdder decoded = new LongAdder();
+		long deadline = System.nanoTime() + duration.toNanos();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			int offset = t * tokens.size() / threads;
+			pool.execute(() -> {
+				for (int i = offset; System.nanoTime() < deadline; i++) {
+					decoder.decode(tokens.get(i % tokens.size())).block();
+					decoded.increment();
+				}
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(duration.toSeconds() + 30, TimeUnit.SECONDS);
+		return decoded.sum();
+	}
+
+	private static String token(RSAKey key, String subject) throws Exception {
+		Instant now = Instant.now();
+		SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+				new JWTClaimsSet.Builder()
+						.subject(subject)
+						.issuer("http://localhost:8181/realms/fitness-app")
+						.issueTime(Date.from(now))
+						.expirationTime(Date.from(now.plus(Duration.ofHours(1))))
+						.claim("email_verified", true)
+						.build());
+		jwt.sign(new RSASSASigner(key));
+		return jwt.serialize();
+	}
+}
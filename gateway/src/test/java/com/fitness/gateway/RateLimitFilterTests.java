@@ -0,0 +1,140 @@
+package com.fitness.gateway;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTests {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	private final RateLimitProperties properties = properties();
+	private final RateLimitFilter filter = new RateLimitFilter(properties);
+
+	@AfterEach
+	void stopEviction() {
+		filter.destroy();
+	}
+
+	@Test
+	void burstUpToCapacityThenRejects() {
+		for (int i = 0; i < 3; i++) {
+			assertThat(filter.take("ann", "route", 0).allowed()).isTrue();
+		}
+		RateLimitFilter.Decision rejected = filter.take("ann", "route", 0);
+
+		assertThat(rejected.allowed()).isFalse();
+		assertThat(rejected.remaining()).isZero();
+		assertThat(rejected.retryAfterSeconds()).isEqualTo(1);
+	}
+
+	@Test
+	void tokensComeBackAtTheRefillRate() {
+		for (int i = 0; i < 3; i++) {
+			filter.take("ann", "route", 0);
+		}
+
+		assertThat(filter.take("ann", "route", SECOND / 2).allowed()).isFalse();
+		assertThat(filter.take("ann", "route", SECOND).allowed()).isTrue();
+		assertThat(filter.take("ann", "route", SECOND).allowed()).isFalse();
+	}
+
+	@Test
+	void refillNeverExceedsCapacity() {
+		filter.take("ann", "route", 0);
+
+		assertThat(filter.take("ann", "route", 60 * SECOND).remaining()).isEqualTo(2);
+	}
+
+	@Test
+	void bucketsArePerCallerAndRoute() {
+		for (int i = 0; i < 3; i++) {
+			filter.take("ann", "route", 0);
+		}
+
+		assertThat(filter.take("bob", "route", 0).allowed()).isTrue();
+		assertThat(filter.take("ann", "strict", 0).allowed()).isTrue();
+		assertThat(filter.take("ann", "strict", 0).allowed()).isFalse();
+	}
+
+	@Test
+	void rejectedRequestGets429WithoutReachingTheChain() {
+		AtomicInteger forwarded = new AtomicInteger();
+		GatewayFilterChain chain = exchange -> {
+			forwarded.incrementAndGet();
+			return Mono.empty();
+		};
+
+		ServerWebExchange last = null;
+		for (int i = 0; i < 4; i++) {
+			last = exchange("ann");
+			filter.filter(last, chain).block();
+		}
+
+		assertThat(forwarded).hasValue(3);
+		assertThat(last.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+		assertThat(last.getResponse().getHeaders().getFirst(RateLimitFilter.LIMIT_HEADER)).isEqualTo("3");
+		assertThat(last.getResponse().getHeaders().getFirst(RateLimitFilter.REMAINING_HEADER)).isEqualTo("0");
+		assertThat(last.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+	}
+
+	@Test
+	void callerIsTheJwtSubject() {
+		assertThat(RateLimitFilter.caller(exchange("ann")).block()).isEqualTo("ann");
+	}
+
+	@Test
+	void unauthenticatedCallerIsTheRemoteAddress() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/register")
+				.remoteAddress(new InetSocketAddress("10.0.0.7", 40000)));
+
+		assertThat(RateLimitFilter.caller(exchange).block()).isEqualTo("10.0.0.7");
+	}
+
+	private static ServerWebExchange exchange(String subject) {
+		Jwt jwt = Jwt.withTokenValue("token")
+				.header("alg", "RS256")
+				.subject(subject)
+				.issuedAt(Instant.now())
+				.expiresAt(Instant.now().plusSeconds(60))
+				.build();
+		ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/me"))
+				.mutate()
+				.principal(Mono.just(new JwtAuthenticationToken(jwt)))
+				.build();
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+				.id("route")
+				.uri("http://localhost")
+				.predicate(e -> true)
+				.build());
+		return exchange;
+	}
+
+	private static RateLimitProperties properties() {
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.getDefaults().setCapacity(3);
+		properties.getDefaults().setRefillPerSecond(1);
+		RateLimitProperties.Limit strict = new RateLimitProperties.Limit();
+		strict.setCapacity(1);
+		strict.setRefillPerSecond(1);
+		properties.setRoutes(Map.of("strict", strict));
+		return properties;
+	}
+}
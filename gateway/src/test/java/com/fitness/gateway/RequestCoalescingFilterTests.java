@@ -0,0 +1,133 @@
+package com.fitness.gateway;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCoalescingFilterTests {
+
+	private final RequestCoalescingFilter filter = new RequestCoalescingFilter(true, Duration.ofMillis(200),
+			DataSize.ofKilobytes(256), 100);
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+	private final Sinks.Empty<Void> leaderRelease = Sinks.empty();
+
+	@Test
+	void identicalConcurrentGetsShareOneUpstreamCall() {
+		ServerWebExchange leader = exchange("ann");
+		leader.getResponse().getHeaders().set(RateLimitFilter.REMAINING_HEADER, "9");
+		ServerWebExchange follower = exchange("ann");
+		follower.getResponse().getHeaders().set(RateLimitFilter.REMAINING_HEADER, "8");
+
+		CompletableFuture<Void> leading = filter.filter(leader, gated("profile")).toFuture();
+		CompletableFuture<Void> following = filter.filter(follower, immediate("second call")).toFuture();
+		leaderRelease.tryEmitEmpty();
+		leading.join();
+		following.join();
+
+		assertThat(upstreamCalls).hasValue(1);
+		assertThat(body(follower)).isEqualTo("profile");
+		assertThat(follower.getResponse().getHeaders().getFirst(RequestCoalescingFilter.COALESCED_HEADER)).isEqualTo("true");
+		// the follower was counted by the rate limiter on its own; the leader's count is not shared
+		assertThat(follower.getResponse().getHeaders().getFirst(RateLimitFilter.REMAINING_HEADER)).isEqualTo("8");
+		assertThat(follower.getResponse().getHeaders().getFirst("X-Upstream")).isEqualTo("leader");
+	}
+
+	@Test
+	void requestsFromDifferentUsersAreNotMerged() {
+		CompletableFuture<Void> leading = filter.filter(exchange("ann"), gated("ann's profile")).toFuture();
+		ServerWebExchange bob = exchange("bob");
+		filter.filter(bob, immediate("bob's profile")).block();
+		leaderRelease.tryEmitEmpty();
+		leading.join();
+
+		assertThat(upstreamCalls).hasValue(2);
+		assertThat(body(bob)).isEqualTo("bob's profile");
+	}
+
+	@Test
+	void followerGoesUpstreamWhenTheLeaderFails() {
+		GatewayFilterChain failing = exchange -> {
+			upstreamCalls.incrementAndGet();
+			return leaderRelease.asMono().then(Mono.error(new IllegalStateException("upstream down")));
+		};
+		CompletableFuture<Void> leading = filter.filter(exchange("ann"), failing).toFuture();
+		ServerWebExchange follower = exchange("ann");
+		CompletableFuture<Void> following = filter.filter(follower, immediate("own call")).toFuture();
+		leaderRelease.tryEmitEmpty();
+		following.join();
+
+		assertThat(leading).isCompletedExceptionally();
+		assertThat(upstreamCalls).hasValue(2);
+		assertThat(body(follower)).isEqualTo("own call");
+	}
+
+	@Test
+	void followerGoesUpstreamWhenTheLeaderIsTooSlow() {
+		filter.filter(exchange("ann"), gated("profile")).subscribe();
+		ServerWebExchange follower = exchange("ann");
+
+		filter.filter(follower, immediate("own call")).block(Duration.ofSeconds(5));
+
+		assertThat(upstreamCalls).hasValue(2);
+		assertThat(body(follower)).isEqualTo("own call");
+		assertThat(follower.getResponse().getHeaders().containsKey(RequestCoalescingFilter.COALESCED_HEADER)).isFalse();
+	}
+
+	/** Upstream that answers once {@link #leaderRelease} fires. */
+	private GatewayFilterChain gated(String body) {
+		return exchange -> {
+			upstreamCalls.incrementAndGet();
+			return leaderRelease.asMono().then(Mono.defer(() -> respond(exchange, body, "leader")));
+		};
+	}
+
+	private GatewayFilterChain immediate(String body) {
+		return exchange -> {
+			upstreamCalls.incrementAndGet();
+			return respond(exchange, body, "own");
+		};
+	}
+
+	private static Mono<Void> respond(ServerWebExchange exchange, String body, String marker) {
+		ServerHttpResponse response = exchange.getResponse();
+		response.setStatusCode(HttpStatus.OK);
+		response.getHeaders().set("X-Upstream", marker);
+		return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+	}
+
+	private static ServerWebExchange exchange(String subject) {
+		Principal principal = () -> subject;
+		ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/me"))
+				.mutate()
+				.principal(Mono.just(principal))
+				.build();
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+				.id("user-service")
+				.uri("http://localhost")
+				.predicate(e -> true)
+				.build());
+		return exchange;
+	}
+
+	private static String body(ServerWebExchange exchange) {
+		return ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().block();
+	}
+}
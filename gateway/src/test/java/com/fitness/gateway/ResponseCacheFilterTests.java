@@ -0,0 +1,159 @@
+package com.fitness.gateway;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheFilterTests {
+
+	private final ResponseCacheProperties properties = properties();
+	private final ResponseCache responseCache = new ResponseCache(properties, new SimpleMeterRegistry());
+	private final ResponseCacheFilter filter = new ResponseCacheFilter(properties, responseCache);
+	private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+	@Test
+	void missGoesUpstreamOnceAndIsStored() {
+		ServerWebExchange exchange = exchange(HttpMethod.GET, "ann");
+
+		filter.filter(exchange, upstream("profile", headers -> {
+		})).block();
+
+		// the rest of the chain used to run a second time for every request on a cached route
+		assertThat(upstreamCalls).hasValue(1);
+		assertThat(exchange.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_HEADER)).isEqualTo("MISS");
+		assertThat(responseCache.entryCount()).isEqualTo(1);
+	}
+
+	@Test
+	void hitIsServedWithoutGoingUpstream() {
+		filter.filter(exchange(HttpMethod.GET, "ann"), upstream("profile", headers -> {
+		})).block();
+
+		ServerWebExchange second = exchange(HttpMethod.GET, "ann");
+		filter.filter(second, upstream("changed", headers -> {
+		})).block();
+
+		assertThat(upstreamCalls).hasValue(1);
+		assertThat(second.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_HEADER)).isEqualTo("HIT");
+		assertThat(body(second)).isEqualTo("profile");
+	}
+
+	@Test
+	void hitCarriesTheCurrentRequestsRateLimitHeaders() {
+		ServerWebExchange first = exchange(HttpMethod.GET, "ann");
+		first.getResponse().getHeaders().set(RateLimitFilter.REMAINING_HEADER, "9");
+		filter.filter(first, upstream("profile", headers -> headers.set("X-Upstream", "kept"))).block();
+
+		ServerWebExchange second = exchange(HttpMethod.GET, "ann");
+		second.getResponse().getHeaders().set(RateLimitFilter.REMAINING_HEADER, "4");
+		filter.filter(second, upstream("profile", headers -> {
+		})).block();
+
+		HttpHeaders replayed = second.getResponse().getHeaders();
+		assertThat(replayed.getFirst(RateLimitFilter.REMAINING_HEADER)).isEqualTo("4");
+		assertThat(replayed.getFirst(ResponseCacheFilter.CACHE_HEADER)).isEqualTo("HIT");
+		assertThat(replayed.getFirst("X-Upstream")).isEqualTo("kept");
+	}
+
+	@Test
+	void entriesAreNotSharedBetweenSubjects() {
+		filter.filter(exchange(HttpMethod.GET, "ann"), upstream("ann's profile", headers -> {
+		})).block();
+
+		ServerWebExchange bob = exchange(HttpMethod.GET, "bob");
+		filter.filter(bob, upstream("bob's profile", headers -> {
+		})).block();
+
+		assertThat(upstreamCalls).hasValue(2);
+		assertThat(body(bob)).isEqualTo("bob's profile");
+	}
+
+	@Test
+	void unauthenticatedRequestIsNeverCached() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/me"));
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route());
+
+		filter.filter(exchange, upstream("profile", headers -> {
+		})).block();
+
+		assertThat(upstreamCalls).hasValue(1);
+		assertThat(responseCache.entryCount()).isZero();
+	}
+
+	@Test
+	void noStoreResponseIsNotCached() {
+		filter.filter(exchange(HttpMethod.GET, "ann"),
+				upstream("profile", headers -> headers.setCacheControl("no-store"))).block();
+
+		assertThat(responseCache.entryCount()).isZero();
+	}
+
+	@Test
+	void writeDropsTheCallersEntriesForTheRoute() {
+		filter.filter(exchange(HttpMethod.GET, "ann"), upstream("profile", headers -> {
+		})).block();
+
+		filter.filter(exchange(HttpMethod.PUT, "ann"), upstream("", headers -> {
+		})).block();
+
+		assertThat(responseCache.entryCount()).isZero();
+	}
+
+	private GatewayFilterChain upstream(String body, Consumer<HttpHeaders> headers) {
+		return exchange -> {
+			upstreamCalls.incrementAndGet();
+			ServerHttpResponse response = exchange.getResponse();
+			response.setStatusCode(HttpStatus.OK);
+			headers.accept(response.getHeaders());
+			return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+		};
+	}
+
+	private static ServerWebExchange exchange(HttpMethod method, String subject) {
+		Principal principal = () -> subject;
+		ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.method(method, "/api/users/me"))
+				.mutate()
+				.principal(Mono.just(principal))
+				.build();
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route());
+		return exchange;
+	}
+
+	private static Route route() {
+		return Route.async()
+				.id("user-service")
+				.uri("http://localhost")
+				.predicate(e -> true)
+				.build();
+	}
+
+	private static String body(ServerWebExchange exchange) {
+		return ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().block();
+	}
+
+	private static ResponseCacheProperties properties() {
+		ResponseCacheProperties properties = new ResponseCacheProperties();
+		properties.setRoutes(Map.of("user-service", Duration.ofSeconds(30)));
+		return properties;
+	}
+}
@@ -0,0 +1,73 @@
+package com.fitness.gateway;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteMetricsFilterTests {
+
+	private final SlowRequestLog slowRequestLog = new SlowRequestLog(Duration.ZERO, 4);
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final RouteMetricsFilter filter = new RouteMetricsFilter(meterRegistry, slowRequestLog);
+
+	@Test
+	void slowRequestIsLoggedUnderTheMatchedPattern() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(
+				MockServerHttpRequest.get("/api/users/8f14e45f/validate?email=ann@example.com"));
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+				.id("user-service").uri("lb://user-service").predicate(e -> true).build());
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_PREDICATE_MATCHED_PATH_ATTR, "/api/users/**");
+
+		filter.filter(exchange, e -> Mono.empty()).block();
+
+		SlowRequestLog.SlowRequest logged = slowRequestLog.slowest().get(0);
+		assertThat(logged.pathPattern()).isEqualTo("/api/users/**");
+		assertThat(logged.route()).isEqualTo("user-service");
+		assertThat(logged.toString()).doesNotContain("8f14e45f", "ann@example.com");
+	}
+
+	@Test
+	void requestWithoutARouteKeepsNoPath() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/unknown/42"));
+
+		filter.filter(exchange, e -> Mono.empty()).block();
+
+		SlowRequestLog.SlowRequest logged = slowRequestLog.slowest().get(0);
+		assertThat(logged.pathPattern()).isEqualTo("none");
+		assertThat(logged.route()).isEqualTo("none");
+	}
+
+	@Test
+	void failedRequestIsRecordedWithTheStatusTheErrorHandlerWillSet() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/42"));
+
+		filter.filter(exchange, e -> Mono.error(new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT)))
+				.onErrorComplete()
+				.block();
+
+		assertThat(slowRequestLog.slowest().get(0).status()).isEqualTo(504);
+		assertThat(meterRegistry.find("gateway.route.latency").tag("status", "504").timer()).isNotNull();
+	}
+
+	@Test
+	void unexpectedErrorIsRecordedAsServerError() {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/42"));
+
+		filter.filter(exchange, e -> Mono.error(new IllegalStateException("connection reset")))
+				.onErrorComplete()
+				.block();
+
+		assertThat(slowRequestLog.slowest().get(0).status()).isEqualTo(500);
+	}
+}
@@ -0,0 +1,23 @@
+package com.fitness.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+
+/**
+ * Request context asking {@link PeakEwmaLoadBalancer} for any instance but
+ * {@code excluded}, e.g. to send a hedged copy of a request somewhere other
+ * than where the original went. Balancers that do not know it ignore it.
+ */
+public class ExcludingRequestContext extends RequestDataContext {
+    private final ServiceInstance excluded;
+
+    public ExcludingRequestContext(RequestData requestData, ServiceInstance excluded) {
+        super(requestData);
+        this.excluded = excluded;
+    }
+
+    public ServiceInstance getExcluded() {
+        return excluded;
+    }
+}
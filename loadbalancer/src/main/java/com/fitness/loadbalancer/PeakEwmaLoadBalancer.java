@@ -0,0 +1,240 @@
+package com.fitness.loadbalancer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Power-of-two-choices over a peak-EWMA latency estimate. Each pick samples two
+ * instances and takes the one with the lower {@code latency * (outstanding + 1)}.
+ * A slow or busy instance therefore gets less traffic without ever being starved:
+ * the estimate decays toward zero while an instance is not being picked, so
+ * after about {@code decayTime} it is tried again and can earn its share back.
+ * An instance that fails {@code failureThreshold} times in a row is ejected for
+ * a while, and is ejected for longer each time it happens again. At most
+ * {@code maxEjectionPercent} of the instances are ejected at once.
+ *
+ * <p>The balancer is also the {@link LoadBalancerLifecycle} that feeds it. The
+ * gateway and {@code @LoadBalanced} WebClients call it around every request,
+ * which gives it the outstanding counts, latencies and failures.
+ *
+ * <p>A request with an {@link ExcludingRequestContext} never gets the instance
+ * it excludes, and gets no instance if that was the only one available.
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+    private static final Log log = LogFactory.getLog(PeakEwmaLoadBalancer.class);
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final String serviceId;
+    private final PeakEwmaSettings settings;
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+    private volatile int knownInstances;
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                String serviceId, PeakEwmaSettings settings) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.settings = settings;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        ServiceInstance excluded = request.getContext() instanceof ExcludingRequestContext excluding
+                ? excluding.getExcluded() : null;
+        return supplier.get(request).next().map(instances -> select(instances, excluded));
+    }
+
+    Response<ServiceInstance> select(List<ServiceInstance> instances) {
+        return select(instances, null);
+    }
+
+    Response<ServiceInstance> select(List<ServiceInstance> instances, ServiceInstance excluded) {
+        if (instances.isEmpty()) {
+            log.warn("No servers available for service: " + serviceId);
+            return new EmptyResponse();
+        }
+        knownInstances = instances.size();
+        forgetDeparted(instances);
+
+        List<ServiceInstance> eligible = instances;
+        if (excluded != null) {
+            String excludedKey = key(excluded);
+            eligible = instances.stream().filter(instance -> !key(instance).equals(excludedKey)).toList();
+            if (eligible.isEmpty()) {
+                return new EmptyResponse();
+            }
+        }
+        long now = System.nanoTime();
+        List<ServiceInstance> candidates = new ArrayList<>(eligible.size());
+        for (ServiceInstance instance : eligible) {
+            if (!stats(instance).ejected(now)) {
+                candidates.add(instance);
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = eligible;
+        }
+        if (candidates.size() == 1) {
+            return new DefaultResponse(candidates.get(0));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        return new DefaultResponse(stats(a).cost(now) <= stats(b).cost(now) ? a : b);
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (request.getContext() instanceof TimedRequestContext timed) {
+            timed.setRequestStartTime(System.nanoTime());
+        }
+        if (lbResponse.hasServer()) {
+            stats(lbResponse.getServer()).outstanding.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()
+                || completionContext.status() == CompletionContext.Status.DISCARD) {
+            return;
+        }
+        InstanceStats instance = stats(lbResponse.getServer());
+        instance.outstanding.decrementAndGet();
+
+        long now = System.nanoTime();
+        Object context = completionContext.getLoadBalancerRequest() != null
+                ? completionContext.getLoadBalancerRequest().getContext() : null;
+        if (context instanceof TimedRequestContext timed && timed.getRequestStartTime() > 0) {
+            instance.observe(now - timed.getRequestStartTime(), now);
+        }
+        boolean failed = completionContext.status() == CompletionContext.Status.FAILED
+                || (completionContext.getClientResponse() instanceof ResponseData response
+                && response.getHttpStatus() != null && response.getHttpStatus().is5xxServerError());
+        if (failed) {
+            instance.failed(now, lbResponse.getServer());
+        } else {
+            instance.succeeded();
+        }
+    }
+
+    private InstanceStats stats(ServiceInstance instance) {
+        return stats.computeIfAbsent(key(instance), key -> new InstanceStats());
+    }
+
+    private void forgetDeparted(List<ServiceInstance> instances) {
+        if (stats.size() > instances.size()) {
+            Set<String> current = instances.stream().map(PeakEwmaLoadBalancer::key).collect(Collectors.toSet());
+            stats.keySet().retainAll(current);
+        }
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    private class InstanceStats {
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private double ewmaNanos = settings.getInitialLatency().toNanos();
+        private long updatedNanos = System.nanoTime();
+        private int ejections;
+        private volatile long ejectedUntil;
+
+        synchronized void observe(long latencyNanos, long now) {
+            double decayed = decayed(now);
+            if (latencyNanos > decayed) {
+                // peak sensitivity: a slow response counts in full right away
+                ewmaNanos = latencyNanos;
+            } else {
+                double weight = weight(now);
+                ewmaNanos = decayed + latencyNanos * (1 - weight);
+            }
+            updatedNanos = now;
+        }
+
+        synchronized double cost(long now) {
+            return decayed(now) * (outstanding.get() + 1);
+        }
+
+        /** The estimate as if zero-latency samples had arrived since the last update. */
+        private double decayed(long now) {
+            return ewmaNanos * weight(now);
+        }
+
+        private double weight(long now) {
+            return Math.exp(-(double) Math.max(0, now - updatedNanos) / settings.getDecayTime().toNanos());
+        }
+
+        boolean ejected(long now) {
+            return now < ejectedUntil;
+        }
+
+        void succeeded() {
+            consecutiveFailures.set(0);
+            synchronized (this) {
+                ejections = 0;
+            }
+        }
+
+        void failed(long now, ServiceInstance instance) {
+            if (consecutiveFailures.incrementAndGet() < settings.getFailureThreshold() || ejected(now)) {
+                return;
+            }
+            long alreadyEjected = stats.values().stream().filter(other -> other.ejected(now)).count();
+            if ((alreadyEjected + 1) * 100 > (long) knownInstances * settings.getMaxEjectionPercent()) {
+                return;
+            }
+            long ejectionNanos;
+            synchronized (this) {
+                ejectionNanos = Math.min(settings.getEjectionTime().toNanos() << Math.min(ejections, 20),
+                        settings.getMaxEjectionTime().toNanos());
+                ejections++;
+            }
+            ejectedUntil = now + ejectionNanos;
+            consecutiveFailures.set(0);
+            log.warn("Ejecting " + key(instance) + " of " + serviceId + " for " + ejectionNanos / 1_000_000 + "ms after "
+                    + settings.getFailureThreshold() + " consecutive failures");
+        }
+    }
+}
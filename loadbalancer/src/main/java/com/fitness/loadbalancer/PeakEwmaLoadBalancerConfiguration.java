@@ -0,0 +1,30 @@
+package com.fitness.loadbalancer;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load balancer client configuration; enable it for every service with
+ * {@code @LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)}.
+ * It is deliberately not a {@code @Configuration}, so component scanning
+ * never registers it in the application context itself.
+ */
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> peakEwmaLoadBalancer(Environment environment,
+                                                                     LoadBalancerClientFactory loadBalancerClientFactory) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        PeakEwmaSettings settings = Binder.get(environment)
+                .bind("fitness.loadbalancer", PeakEwmaSettings.class)
+                .orElseGet(PeakEwmaSettings::new);
+        return new PeakEwmaLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId, settings);
+    }
+}
@@ -0,0 +1,68 @@
+package com.fitness.loadbalancer;
+
+import java.time.Duration;
+
+/**
+ * Tuning for {@link PeakEwmaLoadBalancer}, bound from {@code fitness.loadbalancer}.
+ */
+public class PeakEwmaSettings {
+    /** How quickly old latency samples stop mattering. */
+    private Duration decayTime = Duration.ofSeconds(10);
+    /** Latency assumed for an instance before its first response. */
+    private Duration initialLatency = Duration.ofMillis(50);
+    /** Consecutive failures (errors or 5xx) before an instance is ejected. */
+    private int failureThreshold = 5;
+    /** How long an ejected instance is skipped; doubles on each repeated ejection. */
+    private Duration ejectionTime = Duration.ofSeconds(30);
+    private Duration maxEjectionTime = Duration.ofMinutes(5);
+    /** Never eject more than this share of a service's instances. */
+    private int maxEjectionPercent = 50;
+
+    public Duration getDecayTime() {
+        return decayTime;
+    }
+
+    public void setDecayTime(Duration decayTime) {
+        this.decayTime = decayTime;
+    }
+
+    public Duration getInitialLatency() {
+        return initialLatency;
+    }
+
+    public void setInitialLatency(Duration initialLatency) {
+        this.initialLatency = initialLatency;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public Duration getEjectionTime() {
+        return ejectionTime;
+    }
+
+    public void setEjectionTime(Duration ejectionTime) {
+        this.ejectionTime = ejectionTime;
+    }
+
+    public Duration getMaxEjectionTime() {
+        return maxEjectionTime;
+    }
+
+    public void setMaxEjectionTime(Duration maxEjectionTime) {
+        this.maxEjectionTime = maxEjectionTime;
+    }
+
+    public int getMaxEjectionPercent() {
+        return maxEjectionPercent;
+    }
+
+    public void setMaxEjectionPercent(int maxEjectionPercent) {
+        this.maxEjectionPercent = maxEjectionPercent;
+    }
+}
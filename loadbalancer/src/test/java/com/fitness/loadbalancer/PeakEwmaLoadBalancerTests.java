@@ -0,0 +1,128 @@
+package com.fitness.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultRequestContext;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Drives the balancer with fake instances that answer at different speeds,
+ * the way the gateway's load balancer filter would.
+ */
+class PeakEwmaLoadBalancerTests {
+
+	private final ServiceInstance fast1 = instance("fast-1", 8001);
+	private final ServiceInstance fast2 = instance("fast-2", 8002);
+	private final ServiceInstance slow = instance("slow", 8003);
+
+	@SuppressWarnings("unchecked")
+	private final PeakEwmaLoadBalancer loadBalancer = new PeakEwmaLoadBalancer(
+			mock(ObjectProvider.class), "activity-service", new PeakEwmaSettings());
+
+	@Test
+	void slowInstanceReceivesLittleTraffic() {
+		Map<ServiceInstance, Long> latencyMillis = Map.of(fast1, 5L, fast2, 8L, slow, 80L);
+		Map<ServiceInstance, Integer> picks = new HashMap<>();
+
+		for (int i = 0; i < 2000; i++) {
+			ServiceInstance picked = send(List.of(fast1, fast2, slow), latencyMillis, false);
+			picks.merge(picked, 1, Integer::sum);
+		}
+
+		assertThat(picks.getOrDefault(slow, 0)).isLessThan(100);
+		assertThat(picks.get(fast1)).isGreaterThan(picks.getOrDefault(slow, 0));
+		assertThat(picks.get(fast2)).isGreaterThan(picks.getOrDefault(slow, 0));
+	}
+
+	@Test
+	void recoveredInstanceGetsTrafficAgain() throws InterruptedException {
+		PeakEwmaSettings settings = new PeakEwmaSettings();
+		settings.setDecayTime(Duration.ofMillis(50));
+		settings.setInitialLatency(Duration.ofMillis(200));
+		@SuppressWarnings("unchecked")
+		PeakEwmaLoadBalancer balancer = new PeakEwmaLoadBalancer(mock(ObjectProvider.class), "activity-service",
+				settings);
+		List<ServiceInstance> instances = List.of(fast1, fast2, slow);
+
+		Map<ServiceInstance, Long> slowPhase = Map.of(fast1, 5L, fast2, 5L, slow, 200L);
+		Map<ServiceInstance, Integer> slowPicks = new HashMap<>();
+		for (int i = 0; i < 200; i++) {
+			slowPicks.merge(send(balancer, instances, slowPhase, false), 1, Integer::sum);
+		}
+		assertThat(slowPicks.getOrDefault(slow, 0)).isLessThan(20);
+		// idle long enough for the slow estimate to fade
+		Thread.sleep(300);
+
+		Map<ServiceInstance, Long> recovered = Map.of(fast1, 5L, fast2, 5L, slow, 5L);
+		Map<ServiceInstance, Integer> picks = new HashMap<>();
+		for (int i = 0; i < 2000; i++) {
+			picks.merge(send(balancer, instances, recovered, false), 1, Integer::sum);
+		}
+
+		assertThat(picks.getOrDefault(slow, 0)).isGreaterThan(400);
+	}
+
+	@Test
+	void failingInstanceIsEjected() {
+		Map<ServiceInstance, Long> latencyMillis = Map.of(fast1, 20L, fast2, 5L);
+		int failures = 0;
+		while (failures < new PeakEwmaSettings().getFailureThreshold()) {
+			if (send(List.of(fast1, fast2), latencyMillis, true).equals(fast2)) {
+				failures++;
+			}
+		}
+
+		for (int i = 0; i < 200; i++) {
+			assertThat(loadBalancer.select(List.of(fast1, fast2)).getServer()).isEqualTo(fast1);
+		}
+	}
+
+	@Test
+	void excludedInstanceIsNeverPicked() {
+		for (int i = 0; i < 200; i++) {
+			assertThat(loadBalancer.select(List.of(fast1, fast2, slow), fast1).getServer()).isNotEqualTo(fast1);
+		}
+		assertThat(loadBalancer.select(List.of(fast1), fast1).hasServer()).isFalse();
+	}
+
+	/**
+	 * One request through the lifecycle: pick, start, complete after the
+	 * instance's latency. With {@code fail}, fast-2 fails.
+	 */
+	private ServiceInstance send(List<ServiceInstance> instances, Map<ServiceInstance, Long> latencyMillis,
+			boolean fail) {
+		return send(loadBalancer, instances, latencyMillis, fail);
+	}
+
+	private ServiceInstance send(PeakEwmaLoadBalancer loadBalancer, List<ServiceInstance> instances,
+			Map<ServiceInstance, Long> latencyMillis, boolean fail) {
+		DefaultRequestContext context = new DefaultRequestContext();
+		Request<Object> request = new DefaultRequest<>(context);
+		Response<ServiceInstance> response = loadBalancer.select(instances);
+		loadBalancer.onStartRequest(request, response);
+
+		ServiceInstance picked = response.getServer();
+		context.setRequestStartTime(System.nanoTime() - latencyMillis.get(picked) * 1_000_000);
+		boolean failed = fail && picked.equals(fast2);
+		loadBalancer.onComplete(new CompletionContext<>(
+				failed ? CompletionContext.Status.FAILED : CompletionContext.Status.SUCCESS, request, response));
+		return picked;
+	}
+
+	private static ServiceInstance instance(String id, int port) {
+		return new DefaultServiceInstance(id, "activity-service", "localhost", port, false);
+	}
+}
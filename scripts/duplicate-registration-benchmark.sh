@@ -0,0 +1,68 @@
+#!/usr/bin/env bash
+# Concurrent duplicate registrations against userservice, which go through
+# UserRepository.insertOrGetByEmail. Each round sends the same email from
+# [concurrency] clients at once and checks that all of them got the same user
+# id. A hey run then measures throughput when every request is a duplicate.
+#
+# Needs the config server, Eureka and PostgreSQL running, the way the README
+# starts them, and hey (https://github.com/rakyll/hey) on the PATH.
+# Usage: scripts/duplicate-registration-benchmark.sh [rounds] [concurrency] [duration]
+set -euo pipefail
+
+ROUNDS=${1:-50}
+CONCURRENCY=${2:-16}
+DURATION=${3:-30s}
+PORT=8084
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR="$ROOT/userservice/target/userservice-0.0.1-SNAPSHOT.jar"
+RUN=$(date +%s)
+
+command -v hey >/dev/null || { echo "hey is required: https://github.com/rakyll/hey" >&2; exit 1; }
+
+(cd "$ROOT/userservice" && mvn -q -DskipTests package)
+
+java -jar "$JAR" >/dev/null 2>&1 &
+pid=$!
+trap 'kill "$pid" 2>/dev/null; wait "$pid" 2>/dev/null || true' EXIT
+until curl -sf -o /dev/null "http://localhost:${PORT}/api/users/health"; do
+    kill -0 "$pid" 2>/dev/null || { echo "userservice exited before answering" >&2; exit 1; }
+    sleep 0.2
+done
+
+body() {
+    printf '{"email":"%s","password":"benchmark","firstName":"Duplicate","lastName":"Benchmark"}' "$1"
+}
+
+# prints the user id the registration answered with, or "error"
+register() {
+    curl -s -H 'Content-Type: application/json' -d "$(body "$1")" \
+        "http://localhost:${PORT}/api/users/register" \
+        | sed -nE 's/.*"id":"([^"]+)".*/\1/p' | grep . || echo error
+}
+export -f register body
+export PORT
+
+split=0
+failed=0
+start=$(date +%s%N)
+for round in $(seq 1 "$ROUNDS"); do
+    email="duplicate-${RUN}-${round}@example.com"
+    ids=$(seq 1 "$CONCURRENCY" | xargs -P "$CONCURRENCY" -I{} bash -c "register $email")
+    failed=$((failed + $(grep -c '^error$' <<<"$ids" || true)))
+    if [ "$(grep -v '^error$' <<<"$ids" | sort -u | wc -l)" -ne 1 ]; then
+        split=$((split + 1))
+    fi
+done
+elapsed_ms=$((($(date +%s%N) - start) / 1000000))
+
+echo "rounds:                  $ROUNDS x $CONCURRENCY concurrent registrations of one email"
+echo "elapsed:                 ${elapsed_ms} ms ($((ROUNDS * CONCURRENCY * 1000 / (elapsed_ms > 0 ? elapsed_ms : 1))) registrations/sec)"
+echo "failed requests:         $failed"
+echo "emails with several ids: $split"
+
+register "duplicate-${RUN}-hey@example.com" >/dev/null
+echo "duplicates only:         $(hey -z "$DURATION" -c "$CONCURRENCY" -m POST -T application/json \
+    -d "$(body "duplicate-${RUN}-hey@example.com")" "http://localhost:${PORT}/api/users/register" \
+    | awk '/Requests\/sec/ { print $2 }') requests/sec"
+
+[ "$split" -eq 0 ] && [ "$failed" -eq 0 ]
@@ -0,0 +1,49 @@
+#!/usr/bin/env bash
+# Space the phrase dictionary saves in aiservice's recommendations collection.
+# Each stored recommendation is expanded back to plain text arrays in memory and
+# its BSON size compared with the stored form; the dictionary collection counts
+# against the saving. Sizes are uncompressed BSON, before WiredTiger compression.
+#
+# Needs mongosh on the PATH and a database aiservice has been writing to.
+# Usage: scripts/phrase-storage-report.sh [mongodb-uri]
+set -euo pipefail
+
+URI=${1:-${MONGO_URI:-mongodb://localhost:27017/airecommendationfitness}}
+
+command -v mongosh >/dev/null || { echo "mongosh is required" >&2; exit 1; }
+
+mongosh --quiet "$URI" --eval '
+const phrases = new Map();
+let dictionaryBytes = 0;
+db.recommendation_phrases.find().forEach(p => {
+    phrases.set(p._id, p.text);
+    dictionaryBytes += Object.bsonsize(p);
+});
+
+const fields = ["improvements", "suggestions", "safety"];
+let documents = 0, stored = 0, expanded = 0, refs = 0, inline = 0, missing = 0;
+db.recommendations.find().forEach(doc => {
+    documents++;
+    stored += Object.bsonsize(doc);
+    for (const field of fields) {
+        const entries = doc[field + "Refs"];
+        if (!entries) continue;
+        doc[field] = entries.map(entry => {
+            if (entry.startsWith("~")) { inline++; return entry.substring(1); }
+            refs++;
+            if (!phrases.has(entry)) { missing++; return ""; }
+            return phrases.get(entry);
+        });
+        delete doc[field + "Refs"];
+    }
+    expanded += Object.bsonsize(doc);
+});
+
+const kb = bytes => (bytes / 1024).toFixed(1) + " KiB";
+const saved = expanded - stored - dictionaryBytes;
+print(`recommendations      ${documents}`);
+print(`entries              ${refs} refs, ${inline} inline, ${missing} refs missing from the dictionary`);
+print(`plain text           ${kb(expanded)}`);
+print(`stored               ${kb(stored)} + ${kb(dictionaryBytes)} dictionary (${phrases.size} phrases)`);
+print(`saved                ${kb(saved)} (${expanded ? (100 * saved / expanded).toFixed(1) : 0}%)`);
+'
@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Time from JVM launch to the first successful request, for each service, as a
+# plain jar and as the AOT + CDS build from the aot-cds profile.
+#
+# Needs the config server, Eureka, PostgreSQL, MongoDB and Kafka running, the
+# way the README starts them. Usage: scripts/startup-benchmark.sh [runs]
+set -euo pipefail
+
+RUNS=${1:-5}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+SERVICES=("userservice:8084" "activityservice:8082" "aiservice:8083" "gateway:8085")
+
+# prints milliseconds until GET /actuator/health answers 2xx, then stops the JVM
+time_to_first_request() {
+    local port=$1; shift
+    local start end pid
+    start=$(date +%s%N)
+    java "$@" >/dev/null 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:${port}/actuator/health"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "${port}: JVM exited before answering" >&2
+            return
+        fi
+        sleep 0.05
+    done
+    end=$(date +%s%N)
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo $(((end - start) / 1000000))
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2 ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2)) }'
+}
+
+printf "%-16s %12s %12s\n" "service" "plain (ms)" "aot-cds (ms)"
+for entry in "${SERVICES[@]}"; do
+    module=${entry%%:*}
+    port=${entry##*:}
+    jar="${module}-0.0.1-SNAPSHOT.jar"
+    (
+        cd "$ROOT/$module"
+        mvn -q -DskipTests package
+        mkdir -p target/plain && cp "target/$jar" target/plain/
+        mvn -q -DskipTests -Paot-cds package
+    )
+    target="$ROOT/$module/target"
+
+    plain=$(for _ in $(seq "$RUNS"); do time_to_first_request "$port" -jar "$target/plain/$jar"; done | median)
+    fast=$(for _ in $(seq "$RUNS"); do
+        time_to_first_request "$port" -XX:SharedArchiveFile="$target/cds/application.jsa" \
+            -Dspring.aot.enabled=true -Dspring.cloud.refresh.enabled=false -jar "$target/cds/$jar"
+    done | median)
+    printf "%-16s %12s %12s\n" "$module" "$plain" "$fast"
+done
@@ -0,0 +1,58 @@
+#!/usr/bin/env bash
+# Throughput of GET /api/users/{id} on userservice with the Hibernate
+# second-level and query caches on, then off. The caches are switched off with
+# command-line properties, which win over the config server.
+#
+# Needs the config server, Eureka and PostgreSQL running, the way the README
+# starts them, and hey (https://github.com/rakyll/hey) on the PATH.
+# Usage: scripts/user-cache-benchmark.sh [duration] [concurrency]
+set -euo pipefail
+
+DURATION=${1:-30s}
+CONCURRENCY=${2:-32}
+PORT=8084
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR="$ROOT/userservice/target/userservice-0.0.1-SNAPSHOT.jar"
+
+command -v hey >/dev/null || { echo "hey is required: https://github.com/rakyll/hey" >&2; exit 1; }
+
+(cd "$ROOT/userservice" && mvn -q -DskipTests package)
+
+# starts userservice with the given extra arguments and waits until it answers
+start_userservice() {
+    java -jar "$JAR" "$@" >/dev/null 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:${PORT}/api/users/health"; do
+        kill -0 "$pid" 2>/dev/null || { echo "userservice exited before answering" >&2; exit 1; }
+        sleep 0.2
+    done
+}
+
+stop_userservice() {
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+}
+
+# prints requests/sec for the profile endpoint of one user, after a short warm-up
+profile_throughput() {
+    local id=$1
+    hey -z 5s -c "$CONCURRENCY" "http://localhost:${PORT}/api/users/${id}" >/dev/null
+    hey -z "$DURATION" -c "$CONCURRENCY" "http://localhost:${PORT}/api/users/${id}" \
+        | awk '/Requests\/sec/ { print $2 }'
+}
+
+start_userservice
+user_id=$(curl -sf -H 'Content-Type: application/json' \
+    -d '{"email":"cache-benchmark@example.com","password":"benchmark","firstName":"Cache","lastName":"Benchmark"}' \
+    "http://localhost:${PORT}/api/users/register" | sed -E 's/.*"id":"([^"]+)".*/\1/')
+cached=$(profile_throughput "$user_id")
+stop_userservice
+
+start_userservice --spring.jpa.properties.hibernate.cache.use_second_level_cache=false \
+    --spring.jpa.properties.hibernate.cache.use_query_cache=false
+uncached=$(profile_throughput "$user_id")
+stop_userservice
+
+printf "%-12s %14s\n" "cache" "requests/sec"
+printf "%-12s %14s\n" "off" "$uncached"
+printf "%-12s %14s\n" "on" "$cached"
@@ -1,13 +1,96 @@
 package com.fitness.userservice;
 
+import com.fitness.userservice.dto.RegisteredUser;
+import com.fitness.userservice.dto.UserSummary;
 import com.fitness.userservice.models.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User,String> {
+    String QUERY_CACHE_REGION = "user-queries";
 
-    Boolean existsByEmail(String email);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
     Boolean existsByKeycloakId(String userId);
-    User findByEmail(String email);
+
+    @Query("select u.id from User u")
+    Stream<String> streamAllIds();
+
+    @Query("select new com.fitness.userservice.dto.UserSummary(u.id, u.email, u.firstname, u.lastname) "
+            + "from User u where u.id in :ids")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    Stream<UserSummary> streamSummariesByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Inserts the user, or returns the existing row when the email is taken, in
+     * one statement. Under a concurrent insert of the same email the statement
+     * snapshot can miss the other row, in which case nothing is returned and the
+     * caller should simply run it again. Hibernate cannot see what a native
+     * statement wrote, so callers must evict {@link #QUERY_CACHE_REGION} after
+     * an insert.
+     */
+    @Transactional
+    @Query(value = """
+            WITH inserted AS (
+                INSERT INTO users (id, email, password, firstname, lastname, role, created_at, updated_at)
+                VALUES (:id, :email, :password, :firstname, :lastname, 'USER', now(), now())
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id, email, firstname, lastname, created_at, updated_at
+            )
+            SELECT id, email, firstname, lastname, created_at AS "createdAt", updated_at AS "updatedAt" FROM inserted
+            UNION ALL
+            SELECT id, email, firstname, lastname, created_at AS "createdAt", updated_at AS "updatedAt" FROM users
+            WHERE email = :email
+            LIMIT 1
+            """, nativeQuery = true)
+    Optional<RegisteredUser> insertOrGetByEmail(@Param("id") String id,
+                                                @Param("email") String email,
+                                                @Param("password") String password,
+                                                @Param("firstname") String firstname,
+                                                @Param("lastname") String lastname);
+
+    /**
+     * Returns the user linked to the Keycloak subject. Failing that, the user is
+     * inserted, or the row registered with the same email is linked to the
+     * subject when it is not linked yet. Nothing is returned when the email
+     * belongs to a user linked to another subject. The caller must only pass
+     * emails Keycloak has verified, and must evict the entity and
+     * {@link #QUERY_CACHE_REGION} since the statement may update an existing row.
+     */
+    @Transactional
+    @Query(value = """
+            WITH linked AS (
+                SELECT id, email, firstname, lastname, created_at, updated_at FROM users
+                WHERE keycloak_id = :keycloakId
+            ), upserted AS (
+                INSERT INTO users (id, keycloak_id, email, password, firstname, lastname, role, created_at, updated_at)
+                SELECT :id, :keycloakId, :email, :password, :firstname, :lastname, 'USER', now(), now()
+                WHERE NOT EXISTS (SELECT 1 FROM linked)
+                ON CONFLICT (email) DO UPDATE SET keycloak_id = EXCLUDED.keycloak_id, updated_at = now()
+                WHERE users.keycloak_id IS NULL OR users.keycloak_id = EXCLUDED.keycloak_id
+                RETURNING id, email, firstname, lastname, created_at, updated_at
+            )
+            SELECT id, email, firstname, lastname, created_at AS "createdAt", updated_at AS "updatedAt" FROM linked
+            UNION ALL
+            SELECT id, email, firstname, lastname, created_at AS "createdAt", updated_at AS "updatedAt" FROM upserted
+            LIMIT 1
+            """, nativeQuery = true)
+    Optional<RegisteredUser> insertOrLinkByKeycloakId(@Param("id") String id,
+                                                      @Param("keycloakId") String keycloakId,
+                                                      @Param("email") String email,
+                                                      @Param("password") String password,
+                                                      @Param("firstname") String firstname,
+                                                      @Param("lastname") String lastname);
 }
@@ -0,0 +1,25 @@
+package com.fitness.userservice.config;
+
+import com.fitness.signature.GatewaySignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class GatewaySignatureConfig {
+    private static final Logger log = LoggerFactory.getLogger(GatewaySignatureConfig.class);
+
+    @Bean
+    public GatewaySignature gatewaySignature(@Value("${fitness.gateway.signing-secret:}") String secret,
+            @Value("${fitness.gateway.signature-max-age:30s}") Duration maxAge) {
+        GatewaySignature signature = new GatewaySignature(secret, maxAge);
+        if (!signature.isEnabled()) {
+            log.warn("fitness.gateway.signing-secret is not set; gateway provisioning requests will be refused");
+        }
+        return signature;
+    }
+}
@@ -0,0 +1,146 @@
+package com.fitness.userservice.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a healthy replica (round robin) and
+ * everything else to the primary. A background check marks replicas unhealthy
+ * when they are unreachable or lag the primary by more than the configured
+ * maximum; with no healthy replica, reads fall back to the primary.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    // 0 on a primary or standalone database, seconds since the last replayed transaction on a lagging standby
+    private static final String LAG_QUERY = """
+            SELECT COALESCE(CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                   ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END, 0)
+            """;
+
+    private final DataSource primary;
+    private final List<String> replicaKeys;
+    private final Map<String, DataSource> replicas;
+    private final Duration maxReplicaLag;
+    private final Map<String, Boolean> healthy = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+            Duration maxReplicaLag, Duration healthCheckInterval) {
+        this(primary, replicas, maxReplicaLag, healthCheckInterval, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+            Duration maxReplicaLag, Duration healthCheckInterval, ScheduledExecutorService healthChecker) {
+        this.primary = primary;
+        this.healthChecker = healthChecker;
+        this.replicas = replicas;
+        this.replicaKeys = List.copyOf(replicas.keySet());
+        this.maxReplicaLag = maxReplicaLag;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        replicaKeys.forEach(key -> healthy.put(key, false));
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0,
+                healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        for (int attempt = 0; attempt < replicaKeys.size(); attempt++) {
+            String key = replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+            if (healthy.get(key)) {
+                return key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(key).getConnection();
+        } catch (SQLException e) {
+            log.warn("Replica {} unavailable, reading from primary: {}", key, e.getMessage());
+            healthy.put((String) key, false);
+            return primary.getConnection();
+        }
+    }
+
+    /** Stops the health check and closes the primary and replica pools. */
+    public void shutdown() {
+        healthChecker.shutdownNow();
+        close(PRIMARY, primary);
+        replicas.forEach(this::close);
+    }
+
+    private void close(String key, DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Could not close data source {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    void checkReplicas() {
+        for (String key : replicaKeys) {
+            boolean wasHealthy = healthy.get(key);
+            boolean isHealthy;
+            try (Connection connection = replicas.get(key).getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery(LAG_QUERY)) {
+                result.next();
+                double lagSeconds = result.getDouble(1);
+                isHealthy = lagSeconds * 1000 <= maxReplicaLag.toMillis();
+                if (!isHealthy && wasHealthy) {
+                    log.warn("Replica {} is {}s behind the primary, routing its reads to other nodes", key, lagSeconds);
+                }
+            } catch (SQLException e) {
+                isHealthy = false;
+                if (wasHealthy) {
+                    log.warn("Replica {} failed its health check: {}", key, e.getMessage());
+                }
+            }
+            if (isHealthy && !wasHealthy) {
+                log.info("Replica {} is healthy, routing reads to it", key);
+            }
+            healthy.put(key, isHealthy);
+        }
+    }
+}
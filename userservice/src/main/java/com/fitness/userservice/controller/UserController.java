@@ -1,19 +1,37 @@
 package com.fitness.userservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.signature.GatewaySignature;
 import com.fitness.userservice.dto.RegisterRequest;
+import com.fitness.userservice.dto.UserLookupRequest;
 import com.fitness.userservice.dto.UserResponse;
+import com.fitness.userservice.services.UserExistenceService;
 import com.fitness.userservice.services.UserService;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
     private final UserService userService;
+    private final UserExistenceService userExistenceService;
+    private final ObjectMapper objectMapper;
+    private final GatewaySignature gatewaySignature;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserExistenceService userExistenceService,
+            ObjectMapper objectMapper, GatewaySignature gatewaySignature) {
         this.userService = userService;
+        this.userExistenceService = userExistenceService;
+        this.objectMapper = objectMapper;
+        this.gatewaySignature = gatewaySignature;
     }
 
     @GetMapping("/{userId}")
@@ -22,18 +40,37 @@ public class UserController {
     }
 
     @PostMapping("/register")
-    public ResponseEntity<UserResponse> register(@Valid @RequestBody RegisterRequest request) {
+    public ResponseEntity<UserResponse> register(@Valid @RequestBody RegisterRequest request,
+            @RequestHeader(value = GatewaySignature.HEADER, required = false) String signature) {
+        // linking a Keycloak subject to an account is reserved for the gateway
+        if (request.getKeycloakId() != null
+                && !gatewaySignature.verify(GatewaySignature.KEYCLOAK_ID, request.getKeycloakId(), signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         return ResponseEntity.ok(userService.register(request));
     }
 
+    @PostMapping("/lookup")
+    public ResponseEntity<StreamingResponseBody> lookupUsers(@Valid @RequestBody UserLookupRequest request) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                userService.lookupUsers(request.getUserIds(), result -> {
+                    try {
+                        generator.writeObject(result);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     @GetMapping("/{userId}/validate")
     public ResponseEntity<Boolean> validateUser(@PathVariable String userId) {
-        try {
-            userService.getUserProfile(userId); // throws if not found
-            return ResponseEntity.ok(true);
-        } catch (Exception e) {
-            return ResponseEntity.ok(false);
-        }
+        return ResponseEntity.ok(userExistenceService.exists(userId));
     }
 
     @GetMapping("/health")
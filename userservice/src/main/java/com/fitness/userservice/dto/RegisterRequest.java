@@ -12,6 +12,8 @@ public class RegisterRequest {
     @NotBlank(message = "Password is required")
     @Size(min = 6, message = "Password must have atleast 6 characters")
     private String password;
+    // set when the gateway provisions a user on their first authenticated request
+    private String keycloakId;
     private String firstName;
     private String lastName;
 
@@ -43,6 +45,14 @@ public class RegisterRequest {
         this.password = password;
     }
 
+    public String getKeycloakId() {
+        return keycloakId;
+    }
+
+    public void setKeycloakId(String keycloakId) {
+        this.keycloakId = keycloakId;
+    }
+
     public String getFirstName() {
         return firstName;
     }
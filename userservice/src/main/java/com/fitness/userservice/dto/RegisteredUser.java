@@ -0,0 +1,21 @@
+package com.fitness.userservice.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns returned by the registration upsert; everything the response needs
+ * and nothing else (in particular, not the password).
+ */
+public interface RegisteredUser {
+    String getId();
+
+    String getEmail();
+
+    String getFirstname();
+
+    String getLastname();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,31 @@
+package com.fitness.userservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class UserLookupRequest {
+    public static final int MAX_IDS = 500;
+
+    @NotEmpty(message = "At least one user ID is required")
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " user IDs can be looked up at once")
+    private List<String> userIds;
+
+    // Constructors
+    public UserLookupRequest() {
+    }
+
+    public UserLookupRequest(List<String> userIds) {
+        this.userIds = userIds;
+    }
+
+    // Getters and Setters
+    public List<String> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(List<String> userIds) {
+        this.userIds = userIds;
+    }
+}
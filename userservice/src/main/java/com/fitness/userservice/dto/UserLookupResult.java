@@ -0,0 +1,50 @@
+package com.fitness.userservice.dto;
+
+public class UserLookupResult {
+    private String userId;
+    private boolean exists;
+    private UserSummary profile;
+
+    // Constructors
+    public UserLookupResult() {
+    }
+
+    public UserLookupResult(String userId, boolean exists, UserSummary profile) {
+        this.userId = userId;
+        this.exists = exists;
+        this.profile = profile;
+    }
+
+    public static UserLookupResult found(UserSummary profile) {
+        return new UserLookupResult(profile.getId(), true, profile);
+    }
+
+    public static UserLookupResult missing(String userId) {
+        return new UserLookupResult(userId, false, null);
+    }
+
+    // Getters and Setters
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public boolean isExists() {
+        return exists;
+    }
+
+    public void setExists(boolean exists) {
+        this.exists = exists;
+    }
+
+    public UserSummary getProfile() {
+        return profile;
+    }
+
+    public void setProfile(UserSummary profile) {
+        this.profile = profile;
+    }
+}
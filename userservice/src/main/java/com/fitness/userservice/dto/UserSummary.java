@@ -0,0 +1,56 @@
+package com.fitness.userservice.dto;
+
+/**
+ * Slim profile projection returned by bulk lookups; selected directly by the
+ * query so the password and audit columns are never read.
+ */
+public class UserSummary {
+    private String id;
+    private String email;
+    private String firstname;
+    private String lastname;
+
+    // Constructors
+    public UserSummary() {
+    }
+
+    public UserSummary(String id, String email, String firstname, String lastname) {
+        this.id = id;
+        this.email = email;
+        this.firstname = firstname;
+        this.lastname = lastname;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getFirstname() {
+        return firstname;
+    }
+
+    public void setFirstname(String firstname) {
+        this.firstname = firstname;
+    }
+
+    public String getLastname() {
+        return lastname;
+    }
+
+    public void setLastname(String lastname) {
+        this.lastname = lastname;
+    }
+}
@@ -0,0 +1,93 @@
+package com.fitness.userservice.services;
+
+import com.fitness.userservice.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+/**
+ * Answers "does this user id exist" without loading the user, with an id-only
+ * existence query. An in-memory Bloom filter of all ids can answer definite
+ * misses with no database access, but it only learns about users registered on
+ * this instance. It is therefore only built, and trusted for negative
+ * answers, when {@code userservice.bloom.authoritative} is set, which is only
+ * safe when a single userservice instance takes registrations. Otherwise no
+ * filter is allocated and no ids are scanned at startup.
+ */
+@Service
+public class UserExistenceService {
+    private static final Logger log = LoggerFactory.getLogger(UserExistenceService.class);
+
+    private final UserRepository userRepository;
+    private final long expectedUsers;
+    private final double falsePositiveRate;
+    private final boolean authoritative;
+
+    // null until the startup rebuild finishes; until then every check goes to the database
+    private volatile BloomFilter userIds;
+    // ids registered while the filter was being built, added once it is published
+    private final Queue<String> registeredDuringRebuild = new ConcurrentLinkedQueue<>();
+
+    public UserExistenceService(UserRepository userRepository,
+                                @Value("${userservice.bloom.expected-users:1000000}") long expectedUsers,
+                                @Value("${userservice.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+                                @Value("${userservice.bloom.authoritative:false}") boolean authoritative) {
+        this.userRepository = userRepository;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+        this.authoritative = authoritative;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!authoritative) {
+            log.info("User id Bloom filter disabled; existence checks go to the database");
+            return;
+        }
+        long count = userRepository.count();
+        BloomFilter filter = new BloomFilter(Math.max(expectedUsers, count * 2), falsePositiveRate);
+        try (Stream<String> ids = userRepository.streamAllIds()) {
+            ids.forEach(filter::put);
+        }
+        userIds = filter;
+        String registered;
+        while ((registered = registeredDuringRebuild.poll()) != null) {
+            filter.put(registered);
+        }
+        log.info("User id Bloom filter built with {} ids", count);
+    }
+
+    public void registered(String userId) {
+        if (!authoritative) {
+            return;
+        }
+        BloomFilter filter = userIds;
+        if (filter == null) {
+            registeredDuringRebuild.add(userId);
+            filter = userIds;
+        }
+        if (filter != null) {
+            filter.put(userId);
+        }
+    }
+
+    public boolean exists(String userId) {
+        if (userId == null || userId.isBlank()) {
+            return false;
+        }
+        BloomFilter filter = userIds;
+        if (filter != null && !filter.mightContain(userId)) {
+            return false;
+        }
+        return userRepository.existsById(userId);
+    }
+}
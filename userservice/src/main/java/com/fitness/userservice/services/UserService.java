@@ -2,53 +2,102 @@ package com.fitness.userservice.services;
 
 import com.fitness.userservice.UserRepository;
 import com.fitness.userservice.dto.RegisterRequest;
+import com.fitness.userservice.dto.RegisteredUser;
+import com.fitness.userservice.dto.UserLookupResult;
 import com.fitness.userservice.dto.UserResponse;
+import com.fitness.userservice.dto.UserSummary;
 import com.fitness.userservice.models.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
 @Service
 public class UserService {
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
     private final UserRepository userRepository;
+    private final UserExistenceService userExistenceService;
+    private final EntityManagerFactory entityManagerFactory;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserExistenceService userExistenceService,
+            EntityManagerFactory entityManagerFactory) {
         this.userRepository = userRepository;
+        this.userExistenceService = userExistenceService;
+        this.entityManagerFactory = entityManagerFactory;
     }
 
     public UserResponse register(RegisterRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
-            User existingUser = userRepository.findByEmail(request.getEmail());
-            UserResponse userResponse = new UserResponse();
+        if (request.getKeycloakId() != null) {
+            return toResponse(provision(request));
+        }
+        String newId = UUID.randomUUID().toString();
+        RegisteredUser registered = insertOrGet(newId, request)
+                // a concurrent registration of the same email committed after our snapshot; it is visible now
+                .or(() -> insertOrGet(newId, request))
+                .orElseThrow(() -> new IllegalStateException("Could not register " + request.getEmail()));
 
-            userResponse.setId(existingUser.getId());
-            userResponse.setEmail(existingUser.getEmail());
-            userResponse.setPassword(existingUser.getPassword());
-            userResponse.setFirstname(existingUser.getFirstname());
-            userResponse.setLastname(existingUser.getLastname());
-            userResponse.setCreatedAt(existingUser.getCreatedAt());
-            userResponse.setUpdatedAt(existingUser.getUpdatedAt());
-            return userResponse;
+        if (newId.equals(registered.getId())) {
+            userExistenceService.registered(newId);
+            // cached "no user with this email" answers are stale now
+            entityManagerFactory.getCache().unwrap(Cache.class).evictQueryRegion(UserRepository.QUERY_CACHE_REGION);
         }
+        return toResponse(registered);
+    }
 
-        User user = new User();
-        user.setEmail(request.getEmail());
-        user.setFirstname(request.getFirstName());
-        user.setLastname(request.getLastName());
-        user.setPassword(request.getPassword());
+    /**
+     * Registration on behalf of the gateway, keyed on the Keycloak subject. Only
+     * the gateway may set {@code keycloakId}, and only with an email Keycloak
+     * has verified, so linking a self-registered account by email is safe.
+     */
+    private RegisteredUser provision(RegisterRequest request) {
+        String newId = UUID.randomUUID().toString();
+        RegisteredUser registered = insertOrLink(newId, request)
+                .or(() -> insertOrLink(newId, request))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Email " + request.getEmail() + " belongs to another Keycloak account"));
 
-        User savedUser = userRepository.save(user);
-        UserResponse userResponse = new UserResponse();
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        if (newId.equals(registered.getId())) {
+            userExistenceService.registered(newId);
+        } else {
+            // keycloak_id may have just been set on the existing row
+            cache.evictEntityData(User.class, registered.getId());
+        }
+        cache.evictQueryRegion(UserRepository.QUERY_CACHE_REGION);
+        return registered;
+    }
 
-        userResponse.setId(savedUser.getId());
-        userResponse.setEmail(savedUser.getEmail());
-        userResponse.setPassword(savedUser.getPassword());
-        userResponse.setFirstname(savedUser.getFirstname());
-        userResponse.setLastname(savedUser.getLastname());
-        userResponse.setCreatedAt(savedUser.getCreatedAt());
-        userResponse.setUpdatedAt(savedUser.getUpdatedAt());
+    private Optional<RegisteredUser> insertOrGet(String id, RegisterRequest request) {
+        return userRepository.insertOrGetByEmail(id, request.getEmail(), request.getPassword(),
+                request.getFirstName(), request.getLastName());
+    }
 
+    private Optional<RegisteredUser> insertOrLink(String id, RegisterRequest request) {
+        return userRepository.insertOrLinkByKeycloakId(id, request.getKeycloakId(), request.getEmail(),
+                request.getPassword(), request.getFirstName(), request.getLastName());
+    }
+
+    private static UserResponse toResponse(RegisteredUser registered) {
+        UserResponse userResponse = new UserResponse();
+        userResponse.setId(registered.getId());
+        userResponse.setEmail(registered.getEmail());
+        userResponse.setFirstname(registered.getFirstname());
+        userResponse.setLastname(registered.getLastname());
+        userResponse.setCreatedAt(registered.getCreatedAt());
+        userResponse.setUpdatedAt(registered.getUpdatedAt());
         return userResponse;
     }
 
@@ -69,4 +118,28 @@ public class UserService {
         log.info("Calling user service web service ...{}", userId);
         return userRepository.existsByKeycloakId(userId);
     }
+
+    /**
+     * Looks up many users with one IN query, handing each result to {@code sink}
+     * as its row is read. Found users come first, followed by the ids that do
+     * not exist.
+     */
+    @Transactional(readOnly = true)
+    public void lookupUsers(Collection<String> userIds, Consumer<UserLookupResult> sink) {
+        Set<String> remaining = new LinkedHashSet<>();
+        userIds.stream()
+                .filter(userId -> userId != null && !userId.isBlank())
+                .forEach(remaining::add);
+        // every id goes to the query: the local Bloom filter misses users registered on other instances
+        List<String> candidates = List.copyOf(remaining);
+        if (!candidates.isEmpty()) {
+            try (Stream<UserSummary> rows = userRepository.streamSummariesByIdIn(candidates)) {
+                rows.forEach(summary -> {
+                    remaining.remove(summary.getId());
+                    sink.accept(UserLookupResult.found(summary));
+                });
+            }
+        }
+        remaining.forEach(userId -> sink.accept(UserLookupResult.missing(userId)));
+    }
 }
@@ -0,0 +1,73 @@
+package com.fitness.userservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Builds the real pools against a closed port. Hikari only connects on first
+ * use, so nothing here needs a database.
+ */
+class DataSourceRoutingConfigTests {
+
+	@Test
+	void replicasArePooledReadOnlyWithThePrimaryCredentialsByDefault() {
+		ReadWriteRoutingDataSource routing = routing();
+		try {
+			HikariDataSource primary = (HikariDataSource) ReflectionTestUtils.getField(routing, "primary");
+			HikariDataSource replica = replicas(routing).get("replica-0");
+
+			assertThat(primary.getPoolName()).isEqualTo("primary");
+			assertThat(primary.isReadOnly()).isFalse();
+			assertThat(replica.getPoolName()).isEqualTo("replica-0");
+			assertThat(replica.isReadOnly()).isTrue();
+			assertThat(replica.getUsername()).isEqualTo("fitness");
+			assertThat(replicas(routing).get("replica-1").getUsername()).isEqualTo("reporting");
+		} finally {
+			routing.shutdown();
+		}
+	}
+
+	@Test
+	void shutdownClosesThePrimaryAndReplicaPools() {
+		ReadWriteRoutingDataSource routing = routing();
+
+		routing.shutdown();
+
+		assertThat((HikariDataSource) ReflectionTestUtils.getField(routing, "primary")).returns(true,
+				HikariDataSource::isClosed);
+		assertThat(replicas(routing).values()).allMatch(HikariDataSource::isClosed);
+	}
+
+	private static ReadWriteRoutingDataSource routing() {
+		DataSourceProperties primary = new DataSourceProperties();
+		primary.setDriverClassName("org.postgresql.Driver");
+		primary.setUrl("jdbc:postgresql://localhost:1/fitness-micro-user");
+		primary.setUsername("fitness");
+		primary.setPassword("secret");
+
+		ReplicaDataSourceProperties.Replica inheriting = new ReplicaDataSourceProperties.Replica();
+		inheriting.setUrl("jdbc:postgresql://localhost:2/fitness-micro-user");
+		ReplicaDataSourceProperties.Replica ownCredentials = new ReplicaDataSourceProperties.Replica();
+		ownCredentials.setUrl("jdbc:postgresql://localhost:3/fitness-micro-user");
+		ownCredentials.setUsername("reporting");
+		ownCredentials.setPassword("reporting");
+		ReplicaDataSourceProperties replicas = new ReplicaDataSourceProperties();
+		replicas.setReplicas(List.of(inheriting, ownCredentials));
+		replicas.setHealthCheckInterval(Duration.ofHours(1));
+
+		return new DataSourceRoutingConfig().readWriteRoutingDataSource(primary, replicas);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, HikariDataSource> replicas(ReadWriteRoutingDataSource routing) {
+		return (Map<String, HikariDataSource>) ReflectionTestUtils.getField(routing, "replicas");
+	}
+}
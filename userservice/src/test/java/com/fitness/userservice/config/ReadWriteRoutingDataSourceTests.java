@@ -0,0 +1,151 @@
+package com.fitness.userservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replicas are stub data sources whose lag query answers with a fixed number of
+ * seconds. Nothing is scheduled: each test runs the health check itself.
+ */
+class ReadWriteRoutingDataSourceTests {
+
+	private static final Duration MAX_LAG = Duration.ofSeconds(2);
+
+	private final DataSource primary = mock(DataSource.class);
+	private final Connection primaryConnection = mock(Connection.class);
+	private final ScheduledExecutorService healthChecker = mock(ScheduledExecutorService.class);
+
+	ReadWriteRoutingDataSourceTests() throws SQLException {
+		when(primary.getConnection()).thenReturn(primaryConnection);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+	}
+
+	@Test
+	void writesGoToThePrimary() throws SQLException {
+		Replica replica = new Replica(0);
+		ReadWriteRoutingDataSource routing = routing(replica);
+
+		assertThat(routing.getConnection()).isSameAs(primaryConnection);
+	}
+
+	@Test
+	void readOnlyTransactionsAreSpreadOverHealthyReplicas() throws SQLException {
+		Replica first = new Replica(0);
+		Replica second = new Replica(1);
+		ReadWriteRoutingDataSource routing = routing(first, second);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		List<Connection> connections = List.of(routing.getConnection(), routing.getConnection(),
+				routing.getConnection(), routing.getConnection());
+
+		assertThat(connections).containsOnly(first.connection, second.connection);
+		assertThat(connections).filteredOn(connection -> connection == first.connection).hasSize(2);
+	}
+
+	@Test
+	void replicasWithinTheLagThresholdStayInRotation() throws SQLException {
+		Replica atThreshold = new Replica(MAX_LAG.toSeconds());
+		Replica behind = new Replica(MAX_LAG.toSeconds() + 0.5);
+		ReadWriteRoutingDataSource routing = routing(atThreshold, behind);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertThat(List.of(routing.getConnection(), routing.getConnection(), routing.getConnection()))
+				.containsOnly(atThreshold.connection);
+	}
+
+	@Test
+	void readsFallBackToThePrimaryWhenEveryReplicaLags() throws SQLException {
+		ReadWriteRoutingDataSource routing = routing(new Replica(30));
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertThat(routing.getConnection()).isSameAs(primaryConnection);
+	}
+
+	@Test
+	void unreachableReplicaIsSkipped() throws SQLException {
+		DataSource down = mock(DataSource.class);
+		when(down.getConnection()).thenThrow(new SQLException("Connection refused"));
+		ReadWriteRoutingDataSource routing = routing(Map.of("replica-0", down));
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertThat(routing.getConnection()).isSameAs(primaryConnection);
+	}
+
+	@Test
+	void replicaFailingOnConnectIsTakenOutOfRotation() throws SQLException {
+		Replica replica = new Replica(0);
+		ReadWriteRoutingDataSource routing = routing(replica);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		when(replica.dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+		assertThat(routing.getConnection()).isSameAs(primaryConnection);
+		assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReadWriteRoutingDataSource.PRIMARY);
+	}
+
+	@Test
+	void shutdownClosesEveryPool() {
+		HikariDataSource primaryPool = mock(HikariDataSource.class);
+		HikariDataSource replicaPool = mock(HikariDataSource.class);
+
+		new ReadWriteRoutingDataSource(primaryPool, Map.of("replica-0", replicaPool),
+				MAX_LAG, Duration.ofSeconds(5), healthChecker).shutdown();
+
+		verify(healthChecker).shutdownNow();
+		verify(primaryPool).close();
+		verify(replicaPool).close();
+	}
+
+	private ReadWriteRoutingDataSource routing(Replica... replicas) {
+		Map<String, DataSource> dataSources = new LinkedHashMap<>();
+		for (int i = 0; i < replicas.length; i++) {
+			dataSources.put("replica-" + i, replicas[i].dataSource);
+		}
+		return routing(dataSources);
+	}
+
+	private ReadWriteRoutingDataSource routing(Map<String, DataSource> replicas) {
+		ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replicas, MAX_LAG,
+				Duration.ofSeconds(5), healthChecker);
+		routing.afterPropertiesSet();
+		routing.checkReplicas();
+		return routing;
+	}
+
+	private static final class Replica {
+		final DataSource dataSource = mock(DataSource.class);
+		final Connection connection = mock(Connection.class);
+
+		Replica(double lagSeconds) throws SQLException {
+			Statement statement = mock(Statement.class);
+			ResultSet result = mock(ResultSet.class);
+			when(dataSource.getConnection()).thenReturn(connection);
+			when(connection.createStatement()).thenReturn(statement);
+			when(statement.executeQuery(anyString())).thenReturn(result);
+			when(result.next()).thenReturn(true);
+			when(result.getDouble(1)).thenReturn(lagSeconds);
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package com.fitness.userservice.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTests {
+
+	@Test
+	void neverReportsAnAddedValueAsMissing() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			String id = UUID.randomUUID().toString();
+			ids.add(id);
+			filter.put(id);
+		}
+
+		assertThat(ids).allMatch(filter::mightContain);
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTheConfiguredRate() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put(UUID.randomUUID().toString());
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain(UUID.randomUUID().toString())) {
+				falsePositives++;
+			}
+		}
+		// 1% configured; allow some slack for the hash quality
+		assertThat(falsePositives).isLessThan(2_000);
+	}
+}
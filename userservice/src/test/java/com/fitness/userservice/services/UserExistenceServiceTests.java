@@ -0,0 +1,74 @@
+package com.fitness.userservice.services;
+
+import com.fitness.userservice.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Queue;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserExistenceServiceTests {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	@Test
+	void userRegisteredOnAnotherInstanceIsFoundInTheDatabase() {
+		UserExistenceService service = built(false, "known");
+		// registered elsewhere after this instance built its filter
+		when(userRepository.existsById("elsewhere")).thenReturn(true);
+
+		assertThat(service.exists("elsewhere")).isTrue();
+	}
+
+	@Test
+	void nonAuthoritativeServiceBuildsNoFilter() {
+		UserExistenceService service = new UserExistenceService(userRepository, 1_000, 0.01, false);
+		service.rebuild();
+		service.registered("new");
+
+		verify(userRepository, never()).count();
+		verify(userRepository, never()).streamAllIds();
+		assertThat(ReflectionTestUtils.getField(service, "userIds")).isNull();
+		assertThat((Queue<?>) ReflectionTestUtils.getField(service, "registeredDuringRebuild")).isEmpty();
+	}
+
+	@Test
+	void authoritativeFilterAnswersMissesWithoutTheDatabase() {
+		UserExistenceService service = built(true, "known");
+
+		assertThat(service.exists("unknown")).isFalse();
+		verify(userRepository, never()).existsById("unknown");
+	}
+
+	@Test
+	void possibleHitsAreConfirmedInTheDatabase() {
+		UserExistenceService service = built(true, "known");
+		when(userRepository.existsById("known")).thenReturn(true);
+
+		assertThat(service.exists("known")).isTrue();
+		verify(userRepository).existsById("known");
+	}
+
+	@Test
+	void localRegistrationsAreAddedToTheFilter() {
+		UserExistenceService service = built(true, "known");
+		service.registered("new");
+		when(userRepository.existsById("new")).thenReturn(true);
+
+		assertThat(service.exists("new")).isTrue();
+	}
+
+	private UserExistenceService built(boolean authoritative, String... ids) {
+		when(userRepository.count()).thenReturn((long) ids.length);
+		when(userRepository.streamAllIds()).thenReturn(Stream.of(ids));
+		UserExistenceService service = new UserExistenceService(userRepository, 1_000, 0.01, authoritative);
+		service.rebuild();
+		return service;
+	}
+}
@@ -0,0 +1,161 @@
+package com.fitness.userservice.services;
+
+import com.fitness.userservice.UserRepository;
+import com.fitness.userservice.dto.RegisterRequest;
+import com.fitness.userservice.dto.RegisteredUser;
+import com.fitness.userservice.dto.UserResponse;
+import com.fitness.userservice.models.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Registration goes through one insert-or-return statement; these tests pin
+ * down what the service does with each of its outcomes.
+ */
+class UserServiceTests {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final UserExistenceService userExistenceService = mock(UserExistenceService.class);
+	private final EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class, RETURNS_DEEP_STUBS);
+	private final Cache cache = mock(Cache.class);
+	private final UserService userService = new UserService(userRepository, userExistenceService, entityManagerFactory);
+
+	UserServiceTests() {
+		when(entityManagerFactory.getCache().unwrap(Cache.class)).thenReturn(cache);
+	}
+
+	@Test
+	void newUserIsInsertedWithOneStatement() {
+		when(userRepository.insertOrGetByEmail(anyString(), eq("ann@example.com"), anyString(), any(), any()))
+				.thenAnswer(invocation -> Optional.of(user(invocation.getArgument(0), "ann@example.com")));
+
+		UserResponse response = userService.register(request("ann@example.com"));
+
+		ArgumentCaptor<String> newId = ArgumentCaptor.forClass(String.class);
+		verify(userRepository, times(1)).insertOrGetByEmail(newId.capture(), any(), any(), any(), any());
+		assertThat(response.getId()).isEqualTo(newId.getValue());
+		verify(userExistenceService).registered(newId.getValue());
+		verify(cache).evictQueryRegion(UserRepository.QUERY_CACHE_REGION);
+	}
+
+	@Test
+	void existingEmailReturnsTheExistingUserWithoutInvalidatingCaches() {
+		when(userRepository.insertOrGetByEmail(anyString(), eq("ann@example.com"), anyString(), any(), any()))
+				.thenReturn(Optional.of(user("existing-id", "ann@example.com")));
+
+		UserResponse response = userService.register(request("ann@example.com"));
+
+		assertThat(response.getId()).isEqualTo("existing-id");
+		verify(userExistenceService, never()).registered(anyString());
+		verify(cache, never()).evictQueryRegion(anyString());
+	}
+
+	@Test
+	void statementIsRunAgainWhenAConcurrentInsertWasNotVisible() {
+		when(userRepository.insertOrGetByEmail(anyString(), eq("ann@example.com"), anyString(), any(), any()))
+				.thenReturn(Optional.empty())
+				.thenReturn(Optional.of(user("concurrent-id", "ann@example.com")));
+
+		UserResponse response = userService.register(request("ann@example.com"));
+
+		assertThat(response.getId()).isEqualTo("concurrent-id");
+		verify(userRepository, times(2)).insertOrGetByEmail(any(), any(), any(), any(), any());
+	}
+
+	@Test
+	void registrationFailsIfTheRowNeverBecomesVisible() {
+		when(userRepository.insertOrGetByEmail(anyString(), any(), anyString(), any(), any()))
+				.thenReturn(Optional.empty());
+
+		assertThatThrownBy(() -> userService.register(request("ann@example.com")))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void provisioningLinksTheAccountRegisteredWithTheSameEmail() {
+		when(userRepository.insertOrLinkByKeycloakId(anyString(), eq("kc-subject"), eq("ann@example.com"), anyString(),
+				any(), any())).thenReturn(Optional.of(user("existing-id", "ann@example.com")));
+
+		UserResponse response = userService.register(provisioning("kc-subject", "ann@example.com"));
+
+		assertThat(response.getId()).isEqualTo("existing-id");
+		verify(userRepository, never()).insertOrGetByEmail(any(), any(), any(), any(), any());
+		verify(cache).evictEntityData(User.class, "existing-id");
+		verify(cache).evictQueryRegion(UserRepository.QUERY_CACHE_REGION);
+	}
+
+	@Test
+	void provisioningRefusesAnEmailLinkedToAnotherSubject() {
+		when(userRepository.insertOrLinkByKeycloakId(anyString(), any(), any(), anyString(), any(), any()))
+				.thenReturn(Optional.empty());
+
+		assertThatThrownBy(() -> userService.register(provisioning("kc-subject", "ann@example.com")))
+				.isInstanceOf(ResponseStatusException.class)
+				.extracting(e -> ((ResponseStatusException) e).getStatusCode())
+				.isEqualTo(HttpStatus.CONFLICT);
+	}
+
+	private static RegisterRequest provisioning(String keycloakId, String email) {
+		RegisterRequest request = request(email);
+		request.setKeycloakId(keycloakId);
+		return request;
+	}
+
+	private static RegisterRequest request(String email) {
+		return new RegisterRequest(email, "secret-password", "Ann", "Lee");
+	}
+
+	private static RegisteredUser user(String id, String email) {
+		LocalDateTime now = LocalDateTime.now();
+		return new RegisteredUser() {
+			@Override
+			public String getId() {
+				return id;
+			}
+
+			@Override
+			public String getEmail() {
+				return email;
+			}
+
+			@Override
+			public String getFirstname() {
+				return "Ann";
+			}
+
+			@Override
+			public String getLastname() {
+				return "Lee";
+			}
+
+			@Override
+			public LocalDateTime getCreatedAt() {
+				return now;
+			}
+
+			@Override
+			public LocalDateTime getUpdatedAt() {
+				return now;
+			}
+		};
+	}
+}